@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins;
+
+import com.offbytwo.jenkins.client.JenkinsHttpClient;
+import com.offbytwo.jenkins.model.Payloads;
+import org.jdom2.JDOMException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Work done by {@link JenkinsServer} itself, with a client answering from memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JenkinsServerBenchmark {
+
+    @Param({"10", "1000"})
+    public int jobsOnView;
+
+    private JenkinsServer server;
+
+    @Setup
+    public void setUp() {
+        final String viewConfig = Payloads.listViewConfig(jobsOnView);
+        server = new JenkinsServer(new JenkinsHttpClient(URI.create("http://localhost:8080/")) {
+            @Override
+            public String get(String path) {
+                return viewConfig;
+            }
+        });
+    }
+
+    @Benchmark
+    public String encode() {
+        return server.encode("release branch/1.x (nightly)");
+    }
+
+    @Benchmark
+    public List<String> getJobsOnView() throws IOException, JDOMException {
+        return server.getJobsOnView("benchmark");
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins;
+
+import com.offbytwo.jenkins.client.ConnectionPoolSettings;
+import com.offbytwo.jenkins.model.BuildWithDetails;
+import com.offbytwo.jenkins.model.Job;
+import com.offbytwo.jenkins.model.JobWithDetails;
+import com.offbytwo.jenkins.stub.StubJenkins;
+import com.offbytwo.jenkins.stub.StubJenkinsSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and tail latency of {@link JenkinsServer} against an in-process {@link StubJenkins}, run with
+ * {@code -bm thrpt} or {@code -bm sample} to pick one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class StubJenkinsBenchmark {
+
+    @Param({"1000"})
+    public int jobs;
+
+    @Param({"0", "5"})
+    public long latencyMillis;
+
+    private StubJenkins stub;
+    private JenkinsServer server;
+
+    @Setup
+    public void setUp() throws IOException {
+        StubJenkinsSettings settings = new StubJenkinsSettings();
+        settings.setJobs(jobs);
+        settings.setLatencyMillis(latencyMillis);
+        settings.setLatencyJitterMillis(latencyMillis);
+        stub = new StubJenkins(settings);
+        URI uri = stub.start();
+        server = new JenkinsServer(uri, new ConnectionPoolSettings(32, 32));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.close();
+        stub.stop();
+    }
+
+    @Benchmark
+    public Map<String, Job> getJobs() throws IOException {
+        return server.getJobs();
+    }
+
+    @Benchmark
+    public JobWithDetails getJob() throws IOException {
+        return server.getJob(randomJob());
+    }
+
+    @Benchmark
+    public BuildWithDetails getLastBuildDetails() throws IOException {
+        return server.getJob(randomJob()).getLastBuild().details();
+    }
+
+    @Benchmark
+    public String getJobXml() throws IOException {
+        return server.getJobXml(randomJob());
+    }
+
+    private String randomJob() {
+        return "job-" + ThreadLocalRandom.current().nextInt(jobs);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * URL building done by {@link JenkinsHttpClient} before every request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlBenchmark {
+
+    private JenkinsHttpClient client;
+
+    @Setup
+    public void setUp() {
+        client = new JenkinsHttpClient(URI.create("http://localhost:8080/jenkins"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+    }
+
+    @Benchmark
+    public String urlJoin() {
+        return client.urlJoin("/jenkins/", "/job/trunk");
+    }
+
+    @Benchmark
+    public URI jsonApiRelative() {
+        return client.jsonApi("/job/trunk");
+    }
+
+    @Benchmark
+    public URI jsonApiAbsolute() {
+        return client.jsonApi("http://localhost:8080/jenkins/job/trunk/42/");
+    }
+
+    @Benchmark
+    public URI jsonApiWithQuery() {
+        return client.jsonApi("/job/trunk?tree=lastBuild%5Bnumber%5D&depth=1");
+    }
+
+    @Benchmark
+    public URI correctPath() {
+        return client.correctPath("/job/trunk/config.xml");
+    }
+}
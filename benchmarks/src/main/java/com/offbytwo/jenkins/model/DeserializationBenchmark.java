@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.offbytwo.jenkins.tools.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binding of api/json payloads of increasing size to the models, through {@code ObjectMapper.readValue} (as done
+ * before readers were cached) and through the cached {@link ObjectReader}, with afterburner enabled, see
+ * {@link ReflectionDeserializationBenchmark} for the same suite with reflection based accessors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-D" + Utils.AFTERBURNER_PROPERTY + "=true")
+public class DeserializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private ObjectMapper mapper;
+    private byte[] mainView;
+    private byte[] job;
+    private byte[] build;
+
+    @Setup
+    public void setUp() {
+        mapper = Utils.getJsonMapper();
+        mainView = Payloads.mainView(size);
+        job = Payloads.job(size);
+        build = Payloads.build(size);
+    }
+
+    @Benchmark
+    public MainView mainViewReadValue() throws IOException {
+        return mapper.readValue(mainView, MainView.class);
+    }
+
+    @Benchmark
+    public MainView mainViewCachedReader() throws IOException {
+        return Utils.getJsonReader(MainView.class).readValue(mainView);
+    }
+
+    @Benchmark
+    public JobWithDetails jobReadValue() throws IOException {
+        return mapper.readValue(job, JobWithDetails.class);
+    }
+
+    @Benchmark
+    public JobWithDetails jobCachedReader() throws IOException {
+        return Utils.getJsonReader(JobWithDetails.class).readValue(job);
+    }
+
+    @Benchmark
+    public BuildWithDetails buildReadValue() throws IOException {
+        return mapper.readValue(build, BuildWithDetails.class);
+    }
+
+    @Benchmark
+    public BuildWithDetails buildCachedReader() throws IOException {
+        return Utils.getJsonReader(BuildWithDetails.class).readValue(build);
+    }
+}
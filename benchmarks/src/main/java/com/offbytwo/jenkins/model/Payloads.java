@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.model;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Synthetic api/json payloads shaped like the ones returned by Jenkins, scaled by the number of elements.
+ */
+public final class Payloads {
+    private static final String BASE = "http://localhost:8080/";
+
+    private Payloads() {
+    }
+
+    /**
+     * @return the root {@code /api/json} with the given number of jobs
+     */
+    public static byte[] mainView(int jobs) {
+        StringBuilder json = new StringBuilder("{\"assignedLabels\":[{}],\"mode\":\"NORMAL\",\"nodeDescription\":"
+                + "\"the master Jenkins node\",\"nodeName\":\"\",\"numExecutors\":2,\"description\":null,\"jobs\":[");
+        for (int i = 0; i < jobs; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"name\":\"job-").append(i).append("\",\"url\":\"").append(BASE).append("job/job-")
+                    .append(i).append("/\",\"color\":\"blue\"}");
+        }
+        json.append("],\"overallLoad\":{},\"primaryView\":{\"name\":\"All\",\"url\":\"").append(BASE)
+                .append("\"},\"quietingDown\":false,\"slaveAgentPort\":0,\"unlabeledLoad\":{},\"useCrumbs\":true,"
+                        + "\"useSecurity\":true,\"views\":[{\"name\":\"All\",\"url\":\"").append(BASE).append("\"}]}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return a job {@code api/json} embedding the given number of builds
+     */
+    public static byte[] job(int builds) {
+        String url = BASE + "job/trunk/";
+        StringBuilder json = new StringBuilder("{\"actions\":[{},{}],\"description\":\"\",\"displayName\":\"trunk\","
+                + "\"name\":\"trunk\",\"url\":\"" + url + "\",\"buildable\":true,\"builds\":[");
+        for (int i = builds; i > 0; i--) {
+            if (i < builds) {
+                json.append(',');
+            }
+            json.append(buildReference(url, i));
+        }
+        json.append("],\"color\":\"blue\",\"firstBuild\":").append(buildReference(url, 1))
+                .append(",\"healthReport\":[{\"description\":\"Build stability: No recent builds failed.\","
+                        + "\"iconUrl\":\"health-80plus.png\",\"score\":100}],\"inQueue\":false,\"keepDependencies\":false,")
+                .append("\"lastBuild\":").append(buildReference(url, builds))
+                .append(",\"lastCompletedBuild\":").append(buildReference(url, builds))
+                .append(",\"lastFailedBuild\":null")
+                .append(",\"lastStableBuild\":").append(buildReference(url, builds))
+                .append(",\"lastSuccessfulBuild\":").append(buildReference(url, builds))
+                .append(",\"lastUnstableBuild\":null,\"lastUnsuccessfulBuild\":null")
+                .append(",\"nextBuildNumber\":").append(builds + 1)
+                .append(",\"property\":[],\"queueItem\":null,\"concurrentBuild\":false,\"downstreamProjects\":[],"
+                        + "\"scm\":{},\"upstreamProjects\":[]}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return a build {@code api/json} with the given number of parameters and artifacts
+     */
+    public static byte[] build(int parametersAndArtifacts) {
+        String url = BASE + "job/trunk/42/";
+        StringBuilder json = new StringBuilder("{\"actions\":[{\"causes\":[{\"shortDescription\":\"Started by user "
+                + "anonymous\",\"userId\":null,\"userName\":\"anonymous\"}]},{\"parameters\":[");
+        for (int i = 0; i < parametersAndArtifacts; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"name\":\"PARAM_").append(i).append("\",\"value\":\"value-").append(i).append("\"}");
+        }
+        json.append("]},{},{\"buildsByBranchName\":{},\"lastBuiltRevision\":{\"SHA1\":"
+                + "\"8d6ecf4b2b5e9f3e1a0b7f1f6c1d2e3f4a5b6c7d\"}}],\"artifacts\":[");
+        for (int i = 0; i < parametersAndArtifacts; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"displayPath\":\"module-").append(i).append(".jar\",\"fileName\":\"module-").append(i)
+                    .append(".jar\",\"relativePath\":\"target/module-").append(i).append(".jar\"}");
+        }
+        json.append("],\"building\":false,\"description\":null,\"duration\":123456,\"estimatedDuration\":120000,"
+                + "\"executor\":null,\"fullDisplayName\":\"trunk #42\",\"id\":\"2014-09-08_18-18-00\","
+                + "\"keepLog\":false,\"number\":42,\"result\":\"SUCCESS\",\"timestamp\":1410193080000,\"url\":\"")
+                .append(url).append("\",\"builtOn\":\"\",\"changeSet\":{\"items\":[],\"kind\":null}}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return a list view {@code config.xml} holding the given number of jobs
+     */
+    public static String listViewConfig(int jobs) {
+        StringBuilder xml = new StringBuilder("<?xml version='1.0' encoding='UTF-8'?>\n<hudson.model.ListView>\n"
+                + "  <name>benchmark</name>\n  <filterExecutors>false</filterExecutors>\n"
+                + "  <filterQueue>false</filterQueue>\n  <properties class=\"hudson.model.View$PropertyList\"/>\n"
+                + "  <jobNames>\n    <comparator class=\"hudson.util.CaseInsensitiveComparator\"/>\n");
+        for (int i = 0; i < jobs; i++) {
+            xml.append("    <string>job-").append(i).append("</string>\n");
+        }
+        xml.append("  </jobNames>\n  <jobFilters/>\n  <columns/>\n  <recurse>false</recurse>\n"
+                + "</hudson.model.ListView>");
+        return xml.toString();
+    }
+
+    private static String buildReference(String jobUrl, int number) {
+        return "{\"number\":" + number + ",\"url\":\"" + jobUrl + number + "/\"}";
+    }
+}
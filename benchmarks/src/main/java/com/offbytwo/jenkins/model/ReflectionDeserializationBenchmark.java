@@ -0,0 +1,17 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.model;
+
+import com.offbytwo.jenkins.tools.Utils;
+import org.openjdk.jmh.annotations.Fork;
+
+/**
+ * {@link DeserializationBenchmark} with the afterburner module disabled, i.e. reflection based accessors.
+ */
+@Fork(value = 1, jvmArgsAppend = "-D" + Utils.AFTERBURNER_PROPERTY + "=false")
+public class ReflectionDeserializationBenchmark extends DeserializationBenchmark {
+}
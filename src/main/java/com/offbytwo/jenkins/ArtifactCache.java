@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins;
+
+import com.offbytwo.jenkins.client.JenkinsHttpClient;
+import com.offbytwo.jenkins.model.MavenArtifact;
+import com.offbytwo.jenkins.model.MavenModuleRecord;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Keep downloaded artifacts on disk by md5 checksum, ex. the {@link MavenArtifact}s of the builds of a Maven job,
+ * so that an artifact found in many builds is only downloaded once.
+ *
+ * Artifacts are verified against their checksum while they are downloaded, and the least recently used ones are
+ * removed once the cache grows past its size. Artifacts being linked or mapped are not evicted, and files already
+ * handed out as hard links or mapped in memory stay readable when evicted.
+ */
+public class ArtifactCache {
+    private static final Pattern MD5 = Pattern.compile("[0-9a-f]{32}");
+
+    private final Path directory;
+    private final long maxBytes;
+    // md5 to size, in access order
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+    // md5 to number of threads using the file, not evicted meanwhile
+    private final Map<String, Integer> pins = new HashMap<String, Integer>();
+    private long totalBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param directory where to keep the artifacts, the ones already there are kept, not shared with another
+     * cache at the same time
+     * @param maxBytes total size of the artifacts to keep
+     * @throws IOException
+     */
+    public ArtifactCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        load();
+    }
+
+    /**
+     * @param md5 checksum of an artifact
+     * @return the cached artifact, null if not cached
+     */
+    public Path get(String md5) {
+        String key = key(md5);
+        Path path = pin(key);
+        if (path != null) {
+            unpin(key);
+        }
+        return path;
+    }
+
+    /**
+     * Return the artifact with the given checksum, downloading it if it is not cached. The file may be evicted by
+     * a later fetch, use {@link #fetch(JenkinsHttpClient, MavenModuleRecord, MavenArtifact, Path)} to get a copy
+     * of it.
+     *
+     * @param client client to download with
+     * @param uri where to download the artifact from
+     * @param md5 checksum of the artifact
+     * @return the cached artifact
+     * @throws IOException when the download fails or does not match the checksum
+     */
+    public Path fetch(JenkinsHttpClient client, URI uri, String md5) throws IOException {
+        String key = key(md5);
+        Path path = pin(client, uri, key);
+        unpin(key);
+        return path;
+    }
+
+    /**
+     * Fetch an artifact, kept from being evicted until {@link #unpin(String)}
+     */
+    private Path pin(JenkinsHttpClient client, URI uri, String key) throws IOException {
+        Path cached = pin(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        Path temp = Files.createTempFile(directory, key, ".tmp");
+        try {
+            long size;
+            MessageDigest digest = newDigest();
+            InputStream stream = client.getFile(uri);
+            if (stream == null) {
+                throw new FileNotFoundException(uri.toString());
+            }
+            try (InputStream in = new DigestInputStream(stream, digest)) {
+                size = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String actual = String.format("%032x", new BigInteger(1, digest.digest()));
+            if (!actual.equals(key)) {
+                throw new IOException("Checksum of " + uri + " is " + actual + ", expected " + key);
+            }
+            Path path = path(key);
+            Files.createDirectories(path.getParent());
+            synchronized (this) {
+                // not deleted by an eviction of a previous download of the same artifact
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Long previous = entries.put(key, size);
+                totalBytes += size - (previous == null ? 0 : previous);
+                Integer count = pins.get(key);
+                pins.put(key, count == null ? 1 : count + 1);
+            }
+            try {
+                evict();
+            } catch (IOException e) {
+                unpin(key);
+                throw e;
+            }
+            return path;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Fetch an artifact of a Maven module and link it to the target. An artifact without checksum is downloaded
+     * to the target without being cached.
+     *
+     * @param client client to download with
+     * @param record the module holding the artifact
+     * @param artifact the artifact, with its md5 checksum
+     * @param target where to put the artifact, replaced if it exists
+     * @return the target
+     * @throws IOException
+     */
+    public Path fetch(JenkinsHttpClient client, MavenModuleRecord record, MavenArtifact artifact, Path target)
+            throws IOException {
+        URI uri;
+        try {
+            uri = record.getArtifactUri(artifact);
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+        if (artifact.getMd5sum() == null) {
+            try (InputStream in = client.getFile(uri)) {
+                if (in == null) {
+                    throw new FileNotFoundException(uri.toString());
+                }
+                Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return target;
+        }
+        String key = key(artifact.getMd5sum());
+        Path cached = pin(client, uri, key);
+        try {
+            return link(cached, target);
+        } finally {
+            unpin(key);
+        }
+    }
+
+    /**
+     * Map a cached artifact in memory, read only
+     *
+     * @param md5 checksum of an artifact
+     * @return the content of the artifact, null if not cached
+     * @throws IOException
+     */
+    public MappedByteBuffer map(String md5) throws IOException {
+        String key = key(md5);
+        Path path = pin(key);
+        if (path == null) {
+            return null;
+        }
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            return file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+        } finally {
+            unpin(key);
+        }
+    }
+
+    /**
+     * Hard link a cached artifact to the target, or copy it where hard links are not supported. A linked target
+     * shares its content with the cache and must not be modified in place.
+     *
+     * @param cached a file of this cache
+     * @param target where to put the artifact, replaced if it exists
+     * @return the target
+     * @throws IOException
+     */
+    public Path link(Path cached, Path target) throws IOException {
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, cached);
+        } catch (UnsupportedOperationException | IOException e) {
+            // ex. the target is on another file system
+            Files.copy(cached, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return target;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return total size of the cached artifacts
+     */
+    public synchronized long getSize() {
+        return totalBytes;
+    }
+
+    /**
+     * @return number of cached artifacts
+     */
+    public synchronized int getCount() {
+        return entries.size();
+    }
+
+    /**
+     * @return the cached artifact, kept from being evicted until {@link #unpin(String)}, null if not cached
+     */
+    private Path pin(String key) {
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                return null;
+            }
+            Integer count = pins.get(key);
+            pins.put(key, count == null ? 1 : count + 1);
+        }
+        Path path = path(key);
+        try {
+            // keeps the access order across restarts
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // removed from outside the cache, downloaded again by a fetch
+            unpin(key);
+            return null;
+        }
+        return path;
+    }
+
+    /**
+     * Let a pinned artifact be evicted again, by the next download
+     */
+    private synchronized void unpin(String key) {
+        Integer count = pins.remove(key);
+        if (count != null && count > 1) {
+            pins.put(key, count - 1);
+        }
+    }
+
+    /**
+     * Remove the least recently used artifacts until the cache fits in its size, except the pinned ones
+     */
+    private synchronized void evict() throws IOException {
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            if (pins.containsKey(entry.getKey())) {
+                continue;
+            }
+            // under the lock, so that a download of the same artifact is not deleted
+            Files.deleteIfExists(path(entry.getKey()));
+            totalBytes -= entry.getValue();
+            eldest.remove();
+        }
+    }
+
+    private void load() throws IOException {
+        List<File> files = new ArrayList<File>();
+        File[] prefixes = directory.toFile().listFiles();
+        for (File prefix : prefixes == null ? new File[0] : prefixes) {
+            if (prefix.isFile() && prefix.getName().endsWith(".tmp")) {
+                // left by a download cut short by a crash
+                prefix.delete();
+                continue;
+            }
+            File[] cached = prefix.isDirectory() ? prefix.listFiles() : null;
+            if (cached != null) {
+                files.addAll(Arrays.asList(cached));
+            }
+        }
+        files.sort(Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (MD5.matcher(file.getName()).matches()) {
+                entries.put(file.getName(), file.length());
+                totalBytes += file.length();
+            }
+        }
+        evict();
+    }
+
+    private Path path(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private static String key(String md5) {
+        String key = md5 == null ? "" : md5.trim().toLowerCase();
+        if (!MD5.matcher(key).matches()) {
+            throw new IllegalArgumentException("Not an md5 checksum: " + md5);
+        }
+        return key;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
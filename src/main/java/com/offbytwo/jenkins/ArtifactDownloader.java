@@ -0,0 +1,367 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins;
+
+import com.offbytwo.jenkins.client.JenkinsHttpClient;
+import com.offbytwo.jenkins.client.RemoteFile;
+import com.offbytwo.jenkins.model.Artifact;
+import com.offbytwo.jenkins.model.BuildWithDetails;
+import com.offbytwo.jenkins.model.MavenArtifact;
+import com.offbytwo.jenkins.model.MavenBuild;
+import com.offbytwo.jenkins.model.MavenModule;
+import com.offbytwo.jenkins.model.MavenModuleRecord;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Download artifacts straight to disk. Large files are split into parts fetched concurrently with range
+ * requests and written in place, and an interrupted download resumes with the parts it was missing.
+ *
+ * While downloading, the file is written to {@code <target>.part} and the completed parts are listed in
+ * {@code <target>.part.state}; both are replaced by the target once the download is complete. A download is only
+ * resumed if the artifact has the same size, ETag and Last-Modified as when it started.
+ *
+ * Parts are only downloaded concurrently by a client with a connection pool, see
+ * {@link com.offbytwo.jenkins.client.ConnectionPoolSettings}, allowing as many connections per route as the
+ * parallelism of the downloader.
+ */
+public class ArtifactDownloader implements Closeable {
+    public static final long DEFAULT_PART_SIZE = 16 * 1024 * 1024;
+    private static final DownloadListener NO_LISTENER = new DownloadListener() {
+    };
+
+    private final int parallelism;
+    private final long partSize;
+    private final ExecutorService executor;
+
+    /**
+     * Download with 4 concurrent requests, in parts of 16 MB
+     */
+    public ArtifactDownloader() {
+        this(4, DEFAULT_PART_SIZE);
+    }
+
+    /**
+     * @param parallelism maximum number of concurrent range requests
+     * @param partSize size of each range request
+     */
+    public ArtifactDownloader(int parallelism, long partSize) {
+        this.parallelism = parallelism;
+        this.partSize = partSize;
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "jenkins-artifact-downloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param build the build holding the artifact
+     * @param artifact the artifact to download
+     * @param target file to write, replaced if it exists
+     * @return size of the artifact
+     * @throws IOException
+     */
+    public long download(BuildWithDetails build, Artifact artifact, Path target) throws IOException {
+        try {
+            return download(build.getClient(), build.getArtifactUri(artifact), target);
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * @param client client to download with
+     * @param uri the file to download
+     * @param target file to write, replaced if it exists
+     * @return size of the file
+     * @throws IOException
+     */
+    public long download(JenkinsHttpClient client, URI uri, Path target) throws IOException {
+        return download(client, uri, target, (bytesDone, length) -> { });
+    }
+
+    /**
+     * Download the artifacts of a build into a directory, keeping their relative paths. At most as many files as
+     * the parallelism of this downloader are downloaded at once, and a file failing does not stop the others.
+     *
+     * @param build the build holding the artifacts
+     * @param glob only download the artifacts whose relative path matches, ex. {@code **}{@code /*.jar}, null for all
+     * @param directory where to write the artifacts
+     * @param listener notified of the progress of each file, can be null
+     * @return what was downloaded and what failed
+     * @throws IOException
+     */
+    public DownloadReport downloadAll(BuildWithDetails build, String glob, Path directory, DownloadListener listener)
+            throws IOException {
+        Map<String, URI> files = new LinkedHashMap<String, URI>();
+        if (build.getArtifacts() != null) {
+            for (Artifact artifact : build.getArtifacts()) {
+                try {
+                    files.put(artifact.getRelativePath(), build.getArtifactUri(artifact));
+                } catch (URISyntaxException e) {
+                    throw new IOException(e);
+                }
+            }
+        }
+        return downloadAll(build.getClient(), files, glob, directory, listener);
+    }
+
+    /**
+     * Download the artifacts of all the modules of a Maven build into a directory, under
+     * {@code groupId/artifactId/version/}, see {@link #downloadAll(BuildWithDetails, String, Path, DownloadListener)}
+     *
+     * @param build a build of a Maven job
+     * @param glob only download the artifacts whose path matches, ex. {@code **}{@code /*.pom}, null for all
+     * @param directory where to write the artifacts
+     * @param listener notified of the progress of each file, can be null
+     * @return what was downloaded and what failed
+     * @throws IOException
+     */
+    public DownloadReport downloadAll(MavenBuild build, String glob, Path directory, DownloadListener listener)
+            throws IOException {
+        Map<String, URI> files = new LinkedHashMap<String, URI>();
+        MavenModule module = build.getMavenModule();
+        if (module != null && module.getModuleRecords() != null) {
+            for (MavenModuleRecord record : module.getModuleRecords()) {
+                List<MavenArtifact> artifacts = new ArrayList<MavenArtifact>();
+                artifacts.add(record.getMainArtifact());
+                artifacts.add(record.getPomArtifact());
+                if (record.getAttachedArtifacts() != null) {
+                    artifacts.addAll(record.getAttachedArtifacts());
+                }
+                for (MavenArtifact artifact : artifacts) {
+                    if (artifact == null) {
+                        continue;
+                    }
+                    try {
+                        files.put(artifact.getGroupId() + "/" + artifact.getArtifactId() + "/" + artifact.getVersion()
+                                + "/" + artifact.getCanonicalName(), record.getArtifactUri(artifact));
+                    } catch (URISyntaxException e) {
+                        throw new IOException(e);
+                    }
+                }
+            }
+        }
+        return downloadAll(build.getClient(), files, glob, directory, listener);
+    }
+
+    private long download(JenkinsHttpClient client, URI uri, Path target, Progress progress) throws IOException {
+        RemoteFile remote = client.head(uri);
+        if (remote == null) {
+            throw new FileNotFoundException(uri.toString());
+        }
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        Path state = target.resolveSibling(target.getFileName() + ".part.state");
+        long length;
+        if (remote.getLength() < 0 || !remote.isAcceptRanges()) {
+            Files.deleteIfExists(state);
+            length = downloadWhole(client, uri, part);
+            progress.transferred(length, length);
+        } else {
+            downloadParts(client, uri, remote, part, state, progress);
+            length = remote.getLength();
+        }
+        Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(state);
+        return length;
+    }
+
+    /**
+     * Stop the download threads, downloads in progress fail
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private long downloadWhole(JenkinsHttpClient client, URI uri, Path part) throws IOException {
+        try (FileChannel file = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long written = client.getRange(uri, 0, -1, file);
+            if (written < 0) {
+                throw new FileNotFoundException(uri.toString());
+            }
+            return written;
+        }
+    }
+
+    private DownloadReport downloadAll(JenkinsHttpClient client, Map<String, URI> files, String glob, Path directory,
+                                       DownloadListener listener) throws IOException {
+        PathMatcher matcher = glob == null ? null : FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        DownloadListener notified = listener == null ? NO_LISTENER : listener;
+        Path root = directory.toAbsolutePath().normalize();
+        AtomicInteger count = new AtomicInteger();
+        AtomicLong bytes = new AtomicLong();
+        Map<String, IOException> failures = new ConcurrentHashMap<String, IOException>();
+        // files get their own threads, as they wait for their parts on the threads of the downloader
+        ExecutorService threads = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "jenkins-artifact-bulk-downloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        try {
+            List<Future<Void>> downloads = new ArrayList<Future<Void>>();
+            for (Map.Entry<String, URI> file : files.entrySet()) {
+                String path = file.getKey();
+                if (matcher != null && !matcher.matches(Paths.get(path))) {
+                    continue;
+                }
+                Path target = root.resolve(path).normalize();
+                if (!target.startsWith(root)) {
+                    failures.put(path, new IOException(path + " is outside of " + root));
+                    continue;
+                }
+                downloads.add(threads.submit(() -> {
+                    long fileStart = System.nanoTime();
+                    try {
+                        Files.createDirectories(target.getParent());
+                        long length = download(client, file.getValue(), target,
+                                (bytesDone, total) -> notified.progress(path, bytesDone, total));
+                        count.incrementAndGet();
+                        bytes.addAndGet(length);
+                        notified.completed(path, length, System.nanoTime() - fileStart);
+                    } catch (IOException | RuntimeException e) {
+                        // ex. a listener failing, only fails this file
+                        IOException failure = e instanceof IOException ? (IOException) e : new IOException(e);
+                        failures.put(path, failure);
+                        notified.failed(path, failure);
+                    }
+                    return null;
+                }));
+            }
+            await(downloads);
+        } finally {
+            threads.shutdownNow();
+        }
+        return new DownloadReport(count.get(), bytes.get(), System.nanoTime() - start, failures);
+    }
+
+    private void downloadParts(final JenkinsHttpClient client, final URI uri, RemoteFile remote, Path part,
+                               Path state, Progress progress) throws IOException {
+        final long length = remote.getLength();
+        String version = length + " " + remote.getEtag() + " " + remote.getLastModified();
+        Set<Integer> done = readState(state, version);
+        if (done.isEmpty()) {
+            Files.deleteIfExists(part);
+            Files.write(state, (version + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        int parts = (int) Math.max(1, (length + partSize - 1) / partSize);
+        AtomicLong transferred = new AtomicLong();
+        for (int index : done) {
+            transferred.addAndGet(partLength(index, length));
+        }
+        try (FileChannel file = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             BufferedWriter completed = Files.newBufferedWriter(state, StandardCharsets.UTF_8,
+                     StandardOpenOption.APPEND)) {
+            // transferring at a position past the end of the file writes nothing, so make it full size upfront
+            if (file.size() < length) {
+                file.write(ByteBuffer.allocate(1), length - 1);
+            }
+            List<Future<Void>> downloads = new ArrayList<Future<Void>>();
+            for (int i = 0; i < parts; i++) {
+                if (done.contains(i)) {
+                    continue;
+                }
+                final int index = i;
+                downloads.add(executor.submit(() -> {
+                    long start = index * partSize;
+                    client.getRange(uri, start, start + partLength(index, length) - 1, file, remote);
+                    // the part must be on disk before it is recorded as done
+                    file.force(false);
+                    synchronized (completed) {
+                        completed.write(index + "\n");
+                        completed.flush();
+                    }
+                    progress.transferred(transferred.addAndGet(partLength(index, length)), length);
+                    return null;
+                }));
+            }
+            await(downloads);
+            file.truncate(length);
+        }
+    }
+
+    private long partLength(int index, long length) {
+        return Math.max(0, Math.min(partSize, length - index * partSize));
+    }
+
+    private static Set<Integer> readState(Path state, String version) throws IOException {
+        Set<Integer> done = new HashSet<Integer>();
+        if (!Files.exists(state)) {
+            return done;
+        }
+        List<String> lines = Files.readAllLines(state, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(version)) {
+            // the artifact changed since, start over
+            return done;
+        }
+        for (String line : lines.subList(1, lines.size())) {
+            try {
+                done.add(Integer.parseInt(line.trim()));
+            } catch (NumberFormatException e) {
+                // line cut short by a crash, the part is downloaded again
+            }
+        }
+        return done;
+    }
+
+    private static void await(List<Future<Void>> downloads) throws IOException {
+        try {
+            for (Future<Void> download : downloads) {
+                download.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Download interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            // interrupting a thread writing to a FileChannel closes the channel for every part
+            for (Future<Void> download : downloads) {
+                download.cancel(false);
+            }
+        }
+    }
+
+    private interface Progress {
+        void transferred(long bytesDone, long length);
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins;
+
+import com.offbytwo.jenkins.client.ModelVisitor;
+import com.offbytwo.jenkins.client.Projection;
+import com.offbytwo.jenkins.model.Computer;
+import com.offbytwo.jenkins.model.Job;
+import com.offbytwo.jenkins.model.JobWithDetails;
+import com.offbytwo.jenkins.model.LabelWithDetails;
+import com.offbytwo.jenkins.model.MavenJobWithDetails;
+import com.offbytwo.jenkins.model.Node;
+import com.offbytwo.jenkins.model.View;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking view of a {@link JenkinsServer}. Every call returns immediately with a {@link CompletableFuture};
+ * requests are queued and at most {@code maxInFlight} of them talk to the server at the same time.
+ *
+ * The underlying {@link JenkinsServer} should be created with a
+ * {@link com.offbytwo.jenkins.client.ConnectionPoolSettings} allowing at least {@code maxInFlight} connections,
+ * otherwise requests will still queue on the connection pool.
+ *
+ * Each instance owns its threads, {@link #close()} it once done.
+ */
+public class AsyncJenkinsServer implements Closeable {
+    private final JenkinsServer server;
+    private final ExecutorService executor;
+
+    /**
+     * @param server the server to send requests to
+     * @param maxInFlight maximum number of concurrent requests
+     */
+    public AsyncJenkinsServer(JenkinsServer server, int maxInFlight) {
+        this.server = server;
+        this.executor = Executors.newFixedThreadPool(maxInFlight, new DaemonThreadFactory());
+    }
+
+    public CompletableFuture<Boolean> isRunning() {
+        return submit(() -> server.isRunning());
+    }
+
+    public CompletableFuture<Map<String, Job>> getJobs() {
+        return submit(() -> server.getJobs());
+    }
+
+    /**
+     * Visit all the jobs of the server while the listing is being read, see
+     * {@link JenkinsServer#forEachJob(ModelVisitor)}. The visitor is called on a thread of this server.
+     */
+    public CompletableFuture<Void> forEachJob(ModelVisitor<? super Job> visitor) {
+        return submit(() -> {
+            server.forEachJob(visitor);
+            return null;
+        });
+    }
+
+    public CompletableFuture<JobWithDetails> getJob(String jobName) {
+        return submit(() -> server.getJob(jobName));
+    }
+
+    public CompletableFuture<JobWithDetails> getJob(String jobName, Projection projection) {
+        return submit(() -> server.getJob(jobName, projection));
+    }
+
+    public CompletableFuture<MavenJobWithDetails> getMavenJob(String jobName) {
+        return submit(() -> server.getMavenJob(jobName));
+    }
+
+    public CompletableFuture<Void> createJob(String jobName, String jobXml) {
+        return submit(() -> {
+            server.createJob(jobName, jobXml);
+            return null;
+        });
+    }
+
+    public CompletableFuture<String> getJobXml(String jobName) {
+        return submit(() -> server.getJobXml(jobName));
+    }
+
+    public CompletableFuture<String> getPromotionXml(String jobName, String promotionName) {
+        return submit(() -> server.getPromotionXml(jobName, promotionName));
+    }
+
+    public CompletableFuture<Void> updatePromotionXML(String jobName, String promotionName, String jobXml) {
+        return submit(() -> {
+            server.updatePromotionXML(jobName, promotionName, jobXml);
+            return null;
+        });
+    }
+
+    public CompletableFuture<String> createPromotionXML(String jobName, String promotionName, String jobXml) {
+        return submit(() -> server.createPromotionXML(jobName, promotionName, jobXml));
+    }
+
+    public CompletableFuture<Void> updateJob(String jobName, String jobXml) {
+        return submit(() -> {
+            server.updateJob(jobName, jobXml);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deleteJob(String jobName) {
+        return submit(() -> {
+            server.deleteJob(jobName);
+            return null;
+        });
+    }
+
+    public CompletableFuture<LabelWithDetails> getLabel(String labelName) {
+        return submit(() -> server.getLabel(labelName));
+    }
+
+    public CompletableFuture<Map<String, Computer>> getComputers() {
+        return submit(() -> server.getComputers());
+    }
+
+    /**
+     * Visit all the computers of the server while the listing is being read, see
+     * {@link JenkinsServer#forEachComputer(ModelVisitor)}. The visitor is called on a thread of this server.
+     */
+    public CompletableFuture<Void> forEachComputer(ModelVisitor<? super Computer> visitor) {
+        return submit(() -> {
+            server.forEachComputer(visitor);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Computer> getComputer(String name) {
+        return submit(() -> server.getComputer(name));
+    }
+
+    public CompletableFuture<Void> createNode(Node node) {
+        return submit(() -> {
+            server.createNode(node);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deleteNode(String nodeName) {
+        return submit(() -> {
+            server.deleteNode(nodeName);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> addJobToView(String jobName, String viewName) {
+        return submit(() -> {
+            server.addJobToView(jobName, viewName);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> removeJobFromView(String jobName, String viewName) {
+        return submit(() -> {
+            server.removeJobFromView(jobName, viewName);
+            return null;
+        });
+    }
+
+    public CompletableFuture<View> getView(String viewName) {
+        return submit(() -> server.getView(viewName));
+    }
+
+    public CompletableFuture<List<View>> getViews() {
+        return submit(() -> server.getViews());
+    }
+
+    public CompletableFuture<List<String>> getJobsOnView(String viewName) {
+        return submit(() -> server.getJobsOnView(viewName));
+    }
+
+    public CompletableFuture<String> executeScript(String script) {
+        return submit(() -> server.executeScript(script));
+    }
+
+    /**
+     * Stop accepting new requests, which then return a future failed with a
+     * {@link java.util.concurrent.RejectedExecutionException}. Requests already queued are still executed.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Same as {@link #shutdown()}, the {@link JenkinsServer} stays open
+     */
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    private <T> CompletableFuture<T> submit(final Callable<T> call) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) {
+                    // cancelled while queued
+                    return;
+                }
+                try {
+                    future.complete(call.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "jenkins-client-async-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
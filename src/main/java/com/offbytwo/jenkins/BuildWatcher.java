@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins;
+
+import com.offbytwo.jenkins.client.JenkinsHttpClient;
+import com.offbytwo.jenkins.client.Projection;
+import com.offbytwo.jenkins.model.BaseModel;
+import com.offbytwo.jenkins.model.Build;
+import com.offbytwo.jenkins.model.BuildWithDetails;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wait for many builds to complete without a thread per build. A single thread polls the watched builds with
+ * projections returning only their status, all the builds of a job due at the same time with one request, and
+ * fetches the details of each build once it is over.
+ *
+ * A build is polled again halfway to its expected end, as estimated by Jenkins from the previous builds, and
+ * with an exponential backoff once it runs longer than expected.
+ */
+public class BuildWatcher implements Closeable {
+    static final Projection BUILD_STATUS = Projection.of("number,building,result,timestamp,estimatedDuration");
+    static final Projection JOB_STATUS = Projection.of("builds[number,building,result,timestamp,estimatedDuration]");
+    private static final int MAX_FAILURES = 5;
+
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+    private final ConcurrentMap<String, Watch> watches = new ConcurrentHashMap<String, Watch>();
+    private final ScheduledExecutorService scheduler;
+    private volatile boolean closed;
+
+    /**
+     * Poll builds at most every second, and at least every 30 seconds
+     */
+    public BuildWatcher() {
+        this(1000, 30000);
+    }
+
+    /**
+     * @param minIntervalMillis shortest time between two polls of a build
+     * @param maxIntervalMillis longest time between two polls of a build
+     */
+    public BuildWatcher(long minIntervalMillis, long maxIntervalMillis) {
+        this.minIntervalMillis = minIntervalMillis;
+        this.maxIntervalMillis = maxIntervalMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jenkins-build-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::poll, 0, minIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Watch a build until it completes. Watching the same build twice returns the same future; cancelling the
+     * future stops watching the build.
+     *
+     * @param build a build, holding the client to poll it with
+     * @return the details of the build once it is over, failed with an IllegalStateException once the watcher is
+     * closed
+     */
+    public CompletableFuture<BuildWithDetails> watch(Build build) {
+        if (closed) {
+            CompletableFuture<BuildWithDetails> rejected = new CompletableFuture<BuildWithDetails>();
+            rejected.completeExceptionally(new IllegalStateException("Build watcher is closed"));
+            return rejected;
+        }
+        Watch created = new Watch(build);
+        Watch existing = watches.putIfAbsent(build.getUrl(), created);
+        if (closed) {
+            // added while closing, would never be polled
+            watches.remove(build.getUrl(), created);
+            created.future.cancel(false);
+        }
+        return existing == null ? created.future : existing.future;
+    }
+
+    /**
+     * @return number of builds being watched
+     */
+    public int getWatchedCount() {
+        return watches.size();
+    }
+
+    /**
+     * Stop polling, the pending futures are cancelled
+     */
+    @Override
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+        for (Watch watch : watches.values()) {
+            watch.future.cancel(false);
+        }
+        watches.clear();
+    }
+
+    void poll() {
+        long now = System.currentTimeMillis();
+        Map<String, List<Watch>> dueByJob = new LinkedHashMap<String, List<Watch>>();
+        for (Watch watch : watches.values()) {
+            if (watch.future.isDone()) {
+                watches.remove(watch.build.getUrl(), watch);
+            } else if (watch.nextPoll <= now) {
+                String job = jobUrl(watch.build.getUrl());
+                List<Watch> due = dueByJob.get(job);
+                if (due == null) {
+                    due = new ArrayList<Watch>();
+                    dueByJob.put(job, due);
+                }
+                due.add(watch);
+            }
+        }
+        for (Map.Entry<String, List<Watch>> due : dueByJob.entrySet()) {
+            if (due.getValue().size() == 1) {
+                pollBuild(due.getValue().get(0));
+            } else {
+                pollJob(due.getKey(), due.getValue());
+            }
+        }
+    }
+
+    private void pollBuild(Watch watch) {
+        try {
+            BuildWithDetails status = watch.build.details(BUILD_STATUS);
+            if (status == null) {
+                finish(watch, null, new IOException("Build " + watch.build.getUrl() + " does not exist"));
+            } else {
+                update(watch, status);
+            }
+        } catch (IOException | RuntimeException e) {
+            failed(watch, e);
+        }
+    }
+
+    private void pollJob(String jobUrl, List<Watch> due) {
+        JenkinsHttpClient client = due.get(0).build.getClient();
+        Map<Integer, BuildWithDetails> statuses = new HashMap<Integer, BuildWithDetails>();
+        try {
+            JobBuilds job = client.get(jobUrl, JobBuilds.class, JOB_STATUS);
+            if (job != null && job.getBuilds() != null) {
+                for (BuildWithDetails status : job.getBuilds()) {
+                    statuses.put(status.getNumber(), status);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Watch watch : due) {
+                failed(watch, e);
+            }
+            return;
+        }
+        for (Watch watch : due) {
+            BuildWithDetails status = statuses.get(watch.build.getNumber());
+            if (status == null) {
+                // not among the builds listed by the job, ask the build itself
+                pollBuild(watch);
+            } else {
+                update(watch, status);
+            }
+        }
+    }
+
+    private void update(Watch watch, BuildWithDetails status) {
+        watch.failures = 0;
+        if (!status.isBuilding() && status.getResult() != null) {
+            try {
+                finish(watch, watch.build.details(), null);
+            } catch (IOException | RuntimeException e) {
+                failed(watch, e);
+            }
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long remaining = status.getTimestamp() > 0 && status.getEstimatedDuration() > 0
+                ? status.getTimestamp() + status.getEstimatedDuration() - now : -1;
+        if (remaining > 2 * minIntervalMillis) {
+            watch.delay = clamp(remaining / 2);
+        } else {
+            watch.delay = clamp(watch.delay * 2);
+        }
+        watch.nextPoll = now + watch.delay;
+    }
+
+    private void failed(Watch watch, Exception failure) {
+        if (++watch.failures >= MAX_FAILURES) {
+            finish(watch, null, failure);
+            return;
+        }
+        watch.delay = clamp(watch.delay * 2);
+        watch.nextPoll = System.currentTimeMillis() + watch.delay;
+    }
+
+    private void finish(Watch watch, BuildWithDetails details, Throwable failure) {
+        watches.remove(watch.build.getUrl(), watch);
+        if (failure == null) {
+            watch.future.complete(details);
+        } else {
+            watch.future.completeExceptionally(failure);
+        }
+    }
+
+    private long clamp(long delay) {
+        return Math.max(minIntervalMillis, Math.min(delay, maxIntervalMillis));
+    }
+
+    /**
+     * @return the url of the job of a build, ex. http://localhost/job/trunk/ for http://localhost/job/trunk/12/
+     */
+    static String jobUrl(String buildUrl) {
+        String url = buildUrl.endsWith("/") ? buildUrl.substring(0, buildUrl.length() - 1) : buildUrl;
+        return url.substring(0, url.lastIndexOf('/') + 1);
+    }
+
+    private static class Watch {
+        final Build build;
+        final CompletableFuture<BuildWithDetails> future = new CompletableFuture<BuildWithDetails>();
+        // only used by the scheduler thread
+        long nextPoll;
+        long delay;
+        int failures;
+
+        Watch(Build build) {
+            this.build = build;
+        }
+    }
+
+    /**
+     * The statuses of the recent builds of a job
+     */
+    static class JobBuilds extends BaseModel {
+        List<BuildWithDetails> builds;
+
+        public List<BuildWithDetails> getBuilds() {
+            return builds;
+        }
+    }
+}
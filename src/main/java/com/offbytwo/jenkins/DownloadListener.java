@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins;
+
+import java.io.IOException;
+
+/**
+ * Follows the files of a bulk download of an {@link ArtifactDownloader}.
+ *
+ * Files are downloaded concurrently, so listeners are called from many threads at once and have to be thread safe.
+ */
+public interface DownloadListener {
+
+    /**
+     * @param path path of the file relative to the target directory
+     * @param bytesDone bytes of the file downloaded so far, reported after each part
+     * @param length size of the file, -1 if unknown
+     */
+    default void progress(String path, long bytesDone, long length) {
+    }
+
+    /**
+     * @param path path of the file relative to the target directory
+     * @param length size of the file
+     * @param elapsedNanos time it took to download the file
+     */
+    default void completed(String path, long length, long elapsedNanos) {
+    }
+
+    /**
+     * @param path path of the file relative to the target directory
+     * @param failure why the file could not be downloaded
+     */
+    default void failed(String path, IOException failure) {
+    }
+}
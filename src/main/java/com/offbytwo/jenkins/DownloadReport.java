@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Outcome of a bulk download of an {@link ArtifactDownloader}
+ */
+public class DownloadReport {
+    private final int files;
+    private final long bytes;
+    private final long elapsedNanos;
+    private final Map<String, IOException> failures;
+
+    public DownloadReport(int files, long bytes, long elapsedNanos, Map<String, IOException> failures) {
+        this.files = files;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * @return number of files downloaded
+     */
+    public int getFiles() {
+        return files;
+    }
+
+    /**
+     * @return total size of the files downloaded
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return aggregate throughput of the download
+     */
+    public double getBytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : bytes * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return the files which could not be downloaded, by path relative to the target directory
+     */
+    public Map<String, IOException> getFailures() {
+        return failures;
+    }
+
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d files, %d bytes in %.1f s (%.1f MB/s), %d failures", files, bytes,
+                elapsedNanos / 1e9, getBytesPerSecond() / (1024 * 1024), failures.size());
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins;
+
+import com.offbytwo.jenkins.model.BuildWithDetails;
+import com.offbytwo.jenkins.model.ComputerWithDetails;
+import com.offbytwo.jenkins.model.JobWithDetails;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Snapshot of a Jenkins server taken by an {@link InventoryCrawler}. The builds of each job are the most recent
+ * ones listed by the job details of the snapshot, so jobs and builds agree with each other. The snapshot does not
+ * change once taken.
+ */
+public class Inventory {
+    private final long startedAt;
+    private final long completedAt;
+    private final Map<String, JobWithDetails> jobs;
+    private final Map<String, List<BuildWithDetails>> builds;
+    private final Map<String, ComputerWithDetails> computers;
+    private final Map<String, IOException> failures;
+
+    public Inventory(long startedAt, long completedAt, Map<String, JobWithDetails> jobs,
+                     Map<String, List<BuildWithDetails>> builds, Map<String, ComputerWithDetails> computers,
+                     Map<String, IOException> failures) {
+        this.startedAt = startedAt;
+        this.completedAt = completedAt;
+        this.jobs = Collections.unmodifiableMap(new TreeMap<String, JobWithDetails>(jobs));
+        this.builds = Collections.unmodifiableMap(new TreeMap<String, List<BuildWithDetails>>(builds));
+        this.computers = Collections.unmodifiableMap(new TreeMap<String, ComputerWithDetails>(computers));
+        this.failures = Collections.unmodifiableMap(new TreeMap<String, IOException>(failures));
+    }
+
+    /**
+     * @return when the crawl started, in milliseconds since the epoch
+     */
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * @return when the crawl completed, in milliseconds since the epoch
+     */
+    public long getCompletedAt() {
+        return completedAt;
+    }
+
+    /**
+     * @return the details of the jobs, by name
+     */
+    public Map<String, JobWithDetails> getJobs() {
+        return jobs;
+    }
+
+    /**
+     * @return the details of the most recent builds of the jobs, newest first, by job name
+     */
+    public Map<String, List<BuildWithDetails>> getBuilds() {
+        return builds;
+    }
+
+    /**
+     * @return the details of the computers, by display name
+     */
+    public Map<String, ComputerWithDetails> getComputers() {
+        return computers;
+    }
+
+    /**
+     * @return the items which could not be fetched, by url
+     */
+    public Map<String, IOException> getFailures() {
+        return failures;
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins;
+
+import com.offbytwo.jenkins.client.RequestScheduler;
+import com.offbytwo.jenkins.model.Build;
+import com.offbytwo.jenkins.model.BuildWithDetails;
+import com.offbytwo.jenkins.model.Computer;
+import com.offbytwo.jenkins.model.ComputerWithDetails;
+import com.offbytwo.jenkins.model.Job;
+import com.offbytwo.jenkins.model.JobWithDetails;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Take an {@link Inventory} of a server: the details of every job, of their most recent builds and of every
+ * computer. Items are fetched by {@code maxConcurrency} threads as soon as they are listed, each sending one
+ * request at a time, the listings included.
+ *
+ * The progress of a crawl can be followed from another thread with {@link #getDiscovered()},
+ * {@link #getFetched()} and {@link #getRate()}.
+ *
+ * The {@link JenkinsServer} should be created with a {@link com.offbytwo.jenkins.client.ConnectionPoolSettings}
+ * allowing at least {@code maxConcurrency} connections, otherwise requests queue on the connection pool. Its
+ * requests have the {@link RequestScheduler.Priority#BULK} priority.
+ */
+public class InventoryCrawler implements Closeable {
+    private final JenkinsServer server;
+    private final int buildsPerJob;
+    private final ExecutorService executor;
+
+    private final AtomicInteger discovered = new AtomicInteger();
+    private final AtomicInteger fetched = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile long startNanos;
+
+    /**
+     * @param server the server to crawl
+     * @param maxConcurrency maximum number of concurrent requests
+     * @param buildsPerJob number of most recent builds to fetch for each job
+     */
+    public InventoryCrawler(JenkinsServer server, int maxConcurrency, int buildsPerJob) {
+        this.server = server;
+        this.buildsPerJob = buildsPerJob;
+        this.executor = Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+            Thread thread = new Thread(runnable, "jenkins-inventory-crawler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Crawl the server. Items which cannot be fetched are listed as failures of the inventory.
+     *
+     * @return the inventory of the server
+     * @throws IOException when the jobs or computers cannot be listed
+     */
+    public Inventory crawl() throws IOException {
+        discovered.set(0);
+        fetched.set(0);
+        failed.set(0);
+        startNanos = System.nanoTime();
+        long startedAt = System.currentTimeMillis();
+        final Map<String, JobWithDetails> jobs = new ConcurrentHashMap<String, JobWithDetails>();
+        final Map<String, BuildWithDetails[]> builds = new ConcurrentHashMap<String, BuildWithDetails[]>();
+        final Map<String, ComputerWithDetails> computers = new ConcurrentHashMap<String, ComputerWithDetails>();
+        final Map<String, IOException> failures = new ConcurrentHashMap<String, IOException>();
+        final Tasks tasks = new Tasks();
+
+        // the details are fetched while the listings are still being read
+        Future<?> listing = executor.submit(() -> RequestScheduler.withPriority(RequestScheduler.Priority.BULK, () -> {
+            server.forEachJob(job -> {
+                discovered.incrementAndGet();
+                tasks.submit(() -> crawlJob(job, jobs, builds, failures, tasks));
+                return true;
+            });
+            server.forEachComputer(computer -> {
+                discovered.incrementAndGet();
+                tasks.submit(() -> crawlComputer(computer, computers, failures));
+                return true;
+            });
+            return null;
+        }));
+        try {
+            listing.get();
+            for (Future<?> task = tasks.poll(); task != null; task = tasks.poll()) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            listing.cancel(true);
+            tasks.cancel();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Crawl interrupted");
+        } catch (ExecutionException e) {
+            listing.cancel(true);
+            tasks.cancel();
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        Map<String, List<BuildWithDetails>> jobBuilds = new HashMap<String, List<BuildWithDetails>>();
+        for (Map.Entry<String, BuildWithDetails[]> job : builds.entrySet()) {
+            List<BuildWithDetails> fetchedBuilds = new ArrayList<BuildWithDetails>();
+            for (BuildWithDetails build : job.getValue()) {
+                if (build != null) {
+                    fetchedBuilds.add(build);
+                }
+            }
+            jobBuilds.put(job.getKey(), fetchedBuilds);
+        }
+        return new Inventory(startedAt, System.currentTimeMillis(), jobs, jobBuilds, computers, failures);
+    }
+
+    /**
+     * @return number of items to fetch found so far by the current crawl
+     */
+    public int getDiscovered() {
+        return discovered.get();
+    }
+
+    /**
+     * @return number of items fetched so far by the current crawl
+     */
+    public int getFetched() {
+        return fetched.get();
+    }
+
+    /**
+     * @return number of items which could not be fetched by the current crawl
+     */
+    public int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return items fetched or failed per second since the start of the current crawl
+     */
+    public double getRate() {
+        long elapsed = System.nanoTime() - startNanos;
+        return startNanos == 0 || elapsed <= 0 ? 0 : (fetched.get() + failed.get()) * 1e9 / elapsed;
+    }
+
+    /**
+     * Stop the crawling threads
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void crawlJob(Job job, Map<String, JobWithDetails> jobs, Map<String, BuildWithDetails[]> builds,
+                          Map<String, IOException> failures, Tasks tasks) {
+        JobWithDetails details = fetch(job.getUrl(), job::details, failures);
+        if (details == null) {
+            return;
+        }
+        jobs.put(job.getName(), details);
+        List<Build> recent = details.getBuilds() == null ? new ArrayList<Build>()
+                : details.getBuilds().subList(0, Math.min(buildsPerJob, details.getBuilds().size()));
+        discovered.addAndGet(recent.size());
+        final BuildWithDetails[] fetchedBuilds = new BuildWithDetails[recent.size()];
+        builds.put(job.getName(), fetchedBuilds);
+        for (int i = 0; i < recent.size(); i++) {
+            final int index = i;
+            final Build build = recent.get(i);
+            tasks.submit(() -> {
+                fetchedBuilds[index] = fetch(build.getUrl(), build::details, failures);
+            });
+        }
+    }
+
+    private void crawlComputer(Computer computer, Map<String, ComputerWithDetails> computers,
+                               Map<String, IOException> failures) {
+        ComputerWithDetails details = fetch("computer/" + computer.getDisplayName(), computer::details, failures);
+        if (details != null) {
+            computers.put(computer.getDisplayName(), details);
+        }
+    }
+
+    private <T> T fetch(String url, Fetch<T> fetch, Map<String, IOException> failures) {
+        try {
+            T item = RequestScheduler.withPriority(RequestScheduler.Priority.BULK, fetch::fetch);
+            fetched.incrementAndGet();
+            return item;
+        } catch (IOException | RuntimeException e) {
+            // ex. an unexpected response, only fails this item
+            failed.incrementAndGet();
+            failures.put(url, e instanceof IOException ? (IOException) e : new IOException(e));
+            return null;
+        }
+    }
+
+    /**
+     * Tasks of one crawl, a task submits the tasks it discovers before it completes
+     */
+    private final class Tasks {
+        private final Queue<Future<?>> submitted = new ArrayDeque<Future<?>>();
+        private boolean cancelled;
+
+        synchronized void submit(Runnable task) {
+            if (!cancelled) {
+                submitted.add(executor.submit(task));
+            }
+        }
+
+        synchronized Future<?> poll() {
+            return submitted.poll();
+        }
+
+        /**
+         * Cancel the tasks of a crawl which failed, and the ones they would submit, so that they do not keep
+         * the threads busy
+         */
+        synchronized void cancel() {
+            cancelled = true;
+            for (Future<?> task : submitted) {
+                task.cancel(true);
+            }
+            submitted.clear();
+        }
+    }
+
+    private interface Fetch<T> {
+        T fetch() throws IOException;
+    }
+}
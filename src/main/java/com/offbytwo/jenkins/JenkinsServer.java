@@ -8,7 +8,18 @@ package com.offbytwo.jenkins;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Maps;
+import com.offbytwo.jenkins.client.AdaptiveLimiter;
+import com.offbytwo.jenkins.client.CircuitBreaker;
+import com.offbytwo.jenkins.client.ConnectionPoolSettings;
+import com.offbytwo.jenkins.client.DomainCache;
 import com.offbytwo.jenkins.client.JenkinsHttpClient;
+import com.offbytwo.jenkins.client.ModelVisitor;
+import com.offbytwo.jenkins.client.Projection;
+import com.offbytwo.jenkins.client.RateLimiter;
+import com.offbytwo.jenkins.client.RequestScheduler;
+import com.offbytwo.jenkins.client.ResponseCache;
+import com.offbytwo.jenkins.client.RetryPolicy;
+import com.offbytwo.jenkins.client.metrics.RequestListener;
 import com.offbytwo.jenkins.model.*;
 import com.offbytwo.jenkins.tools.Utils;
 import org.apache.http.NameValuePair;
@@ -57,6 +68,30 @@ public class JenkinsServer {
         this(new JenkinsHttpClient(serverUri, username, passwordOrToken));
     }
 
+    /**
+     * Create a new Jenkins server reference using a pool of keep-alive connections, suitable for sharing between
+     * threads
+     *
+     * @param serverUri address of jenkins server (ex. http://localhost:8080/jenkins)
+     * @param poolSettings limits and timeouts of the connection pool
+     */
+    public JenkinsServer(URI serverUri, ConnectionPoolSettings poolSettings) {
+        this(new JenkinsHttpClient(serverUri, poolSettings));
+    }
+
+    /**
+     * Create a new Jenkins server reference given the address and credentials, using a pool of keep-alive
+     * connections suitable for sharing between threads
+     *
+     * @param serverUri address of jenkins server (ex. http://localhost:8080/jenkins)
+     * @param username username to use when connecting
+     * @param passwordOrToken password (not recommended) or token (recommended)
+     * @param poolSettings limits and timeouts of the connection pool
+     */
+    public JenkinsServer(URI serverUri, String username, String passwordOrToken, ConnectionPoolSettings poolSettings) {
+        this(new JenkinsHttpClient(serverUri, username, passwordOrToken, poolSettings));
+    }
+
     /**
      * Create a new Jenkins server directly from an HTTP client (ADVANCED)
      *
@@ -97,6 +132,17 @@ public class JenkinsServer {
         });
     }
 
+    /**
+     * Visit all the jobs defined on the server (at the summary level) while the listing is being read, without
+     * holding the whole listing in memory
+     *
+     * @param visitor receives each job, may stop the listing early
+     * @throws IOException
+     */
+    public void forEachJob(ModelVisitor<? super Job> visitor) throws IOException {
+        client.stream("/", "jobs", Job.class, visitor);
+    }
+
     /**
      * Get a single Job from the server.
      *
@@ -105,24 +151,28 @@ public class JenkinsServer {
      */
     public JobWithDetails getJob(String jobName) throws  IOException {
         try {
-            JobWithDetails job = client.get("/job/"+encode(jobName),JobWithDetails.class);
-            if (job != null) {
-              job.setClient(client);
-            }
-
-            return job;
+            // set by the http client before the job is cached, which may share it between threads
+            return client.get("/job/"+encode(jobName),JobWithDetails.class);
         } catch (HttpResponseException e) {
             throw e;
         }
 
     }
 
+    /**
+     * Get the projected part of a single Job from the server, ex. {@code Projection.of("lastBuild[number]")}.
+     * Fields outside of the projection are left empty.
+     *
+     * @return A single Job, null if not present
+     * @throws IOException
+     */
+    public JobWithDetails getJob(String jobName, Projection projection) throws IOException {
+        return client.get("/job/" + encode(jobName), JobWithDetails.class, projection);
+    }
+
     public MavenJobWithDetails getMavenJob(String jobName) throws IOException {
         try {
-            MavenJobWithDetails job = client.get("/job/"+encode(jobName), MavenJobWithDetails.class);
-            job.setClient(client);
-
-            return job;
+            return client.get("/job/"+encode(jobName), MavenJobWithDetails.class);
         } catch (HttpResponseException e) {
             if(e.getStatusCode() == 404) {
                 return null;
@@ -206,6 +256,17 @@ public class JenkinsServer {
         });
     }
 
+    /**
+     * Visit all the computers of the server (at the summary level) while the listing is being read, without
+     * holding the whole listing in memory
+     *
+     * @param visitor receives each computer, may stop the listing early
+     * @throws IOException
+     */
+    public void forEachComputer(ModelVisitor<? super Computer> visitor) throws IOException {
+        client.stream("computer/", "computer", Computer.class, visitor);
+    }
+
   /**
    * Get a computer on the server (at the summary level)
    *
@@ -283,7 +344,112 @@ public class JenkinsServer {
         client.post_xml("/job/" + encode(jobName) + "/config.xml", jobXml);
     }
 
-    private String encode(String pathPart) {
+    /**
+     * Get a non-blocking view of this server. Each call starts a new pool of {@code maxInFlight} threads, owned by
+     * the caller: close the returned server once done, before or after this one.
+     *
+     * @param maxInFlight maximum number of requests sent to the server concurrently
+     * @return an asynchronous server using this server for each request
+     */
+    public AsyncJenkinsServer async(int maxInFlight) {
+        return new AsyncJenkinsServer(this, maxInFlight);
+    }
+
+    /**
+     * Adapt the number of requests sent concurrently to how fast the server answers
+     *
+     * @param concurrencyLimiter the limiter of this server, null to send requests without limit
+     */
+    public void setConcurrencyLimiter(AdaptiveLimiter concurrencyLimiter) {
+        client.setConcurrencyLimiter(concurrencyLimiter);
+    }
+
+    /**
+     * Send interactive requests ahead of bulk traffic, see {@link RequestScheduler}
+     *
+     * @param requestScheduler the scheduler of this server, null to send requests in the order they come
+     */
+    public void setRequestScheduler(RequestScheduler requestScheduler) {
+        client.setRequestScheduler(requestScheduler);
+    }
+
+    /**
+     * Keep the requests sent to the server under a rate, ex. the API quota of the account used
+     *
+     * @param rateLimiter the rate limiter of this server, null to send requests without delay
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        client.setRateLimiter(rateLimiter);
+    }
+
+    /**
+     * Retry idempotent requests failing because the server is unavailable
+     *
+     * @param retryPolicy when to retry, null to never retry
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        client.setRetryPolicy(retryPolicy);
+    }
+
+    /**
+     * Fail at once instead of sending requests while the server looks down, and ping the server with
+     * {@link #isRunning()} to know when it is back
+     *
+     * @param circuitBreaker the breaker of this server, null to always send requests
+     */
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        if (circuitBreaker != null) {
+            circuitBreaker.setProbe(this::isRunning);
+        }
+        client.setCircuitBreaker(circuitBreaker);
+    }
+
+    /**
+     * Report every request made to this server to the given listener
+     *
+     * @param requestListener listener to notify, ex. a
+     *        {@link com.offbytwo.jenkins.client.metrics.HistogramRecorder}, null to stop reporting
+     */
+    public void setRequestListener(RequestListener requestListener) {
+        client.setRequestListener(requestListener);
+    }
+
+    /**
+     * Reuse the models of unchanged responses instead of parsing them again, see {@link ResponseCache}
+     *
+     * @param responseCache cache to use, null to disable caching
+     */
+    public void setResponseCache(ResponseCache responseCache) {
+        client.setResponseCache(responseCache);
+    }
+
+    /**
+     * Reuse completed builds, and for a short time builds in progress and jobs, see {@link DomainCache}
+     *
+     * @param domainCache cache to use, null to disable caching
+     */
+    public void setDomainCache(DomainCache domainCache) {
+        client.setDomainCache(domainCache);
+    }
+
+    /**
+     * Let concurrent identical requests, ex. many threads calling {@link #getJob(String)} for the same job, share
+     * one call to the server
+     *
+     * @param coalesceRequests whether identical requests in flight are coalesced
+     */
+    public void setCoalesceRequests(boolean coalesceRequests) {
+        client.setCoalesceRequests(coalesceRequests);
+    }
+
+    /**
+     * Release the connections held by the underlying HTTP client
+     */
+    public void close() {
+        client.close();
+    }
+
+    String encode(String pathPart) {
         // jenkins doesn't like the + for space, use %20 instead
         return URLEncoder.encode(pathPart).replaceAll("\\+","%20");
     }
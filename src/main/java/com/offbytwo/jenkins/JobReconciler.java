@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins;
+
+import com.offbytwo.jenkins.ReconcileReport.Action;
+import com.offbytwo.jenkins.ReconcileReport.Result;
+import com.offbytwo.jenkins.client.RequestScheduler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * Bring the jobs of a server in line with their desired configuration, ex. jobs kept as code.
+ *
+ * The current configuration of every job is read in parallel and compared to the desired one, and only the jobs
+ * which differ are created, updated or deleted, with at most {@code maxConcurrency} jobs handled at the same
+ * time. Configurations are compared ignoring the XML declaration, line endings and whitespace between tags.
+ * Only jobs at the top level of the server are reconciled, and folders and multibranch projects found there are
+ * never deleted.
+ *
+ * Its requests have the {@link RequestScheduler.Priority#BULK} priority.
+ */
+public class JobReconciler implements Closeable {
+    private static final Pattern DECLARATION = Pattern.compile("^\\s*<\\?xml[^>]*\\?>");
+    private static final Pattern BETWEEN_TAGS = Pattern.compile(">\\s+<");
+
+    private final JenkinsServer server;
+    private final ExecutorService executor;
+    private volatile boolean dryRun;
+
+    /**
+     * @param server the server holding the jobs
+     * @param maxConcurrency maximum number of jobs handled at the same time
+     */
+    public JobReconciler(JenkinsServer server, int maxConcurrency) {
+        this.server = server;
+        this.executor = Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+            Thread thread = new Thread(runnable, "jenkins-job-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param dryRun whether to only report the actions needed, without making them
+     */
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    /**
+     * Reconcile the jobs of the server. Jobs which cannot be reconciled are reported as failures, the others are
+     * still reconciled.
+     *
+     * @param desired configuration xml of each job, by job name
+     * @param deleteUnmanaged whether to delete the jobs of the server which are not in {@code desired}
+     * @return the result of each job, the desired jobs first
+     * @throws IOException when the jobs of the server cannot be listed
+     */
+    public ReconcileReport reconcile(Map<String, String> desired, boolean deleteUnmanaged) throws IOException {
+        long start = System.nanoTime();
+        final Set<String> existing = ConcurrentHashMap.newKeySet();
+        final Set<String> containers = ConcurrentHashMap.newKeySet();
+        bulk(() -> {
+            server.forEachJob(job -> {
+                existing.add(job.getName());
+                if (isContainer(job.getItemClass())) {
+                    containers.add(job.getName());
+                }
+                return true;
+            });
+            return null;
+        });
+
+        Map<String, Future<Result>> tasks = new LinkedHashMap<String, Future<Result>>();
+        for (Map.Entry<String, String> job : desired.entrySet()) {
+            final String name = job.getKey();
+            final String xml = job.getValue();
+            final boolean exists = existing.contains(name);
+            tasks.put(name, executor.submit(() -> bulk(() -> reconcileJob(name, xml, exists))));
+        }
+        if (deleteUnmanaged) {
+            for (final String name : existing) {
+                // the jobs of a folder are not listed, deleting it would delete them unseen
+                if (!desired.containsKey(name) && !containers.contains(name)) {
+                    tasks.put(name, executor.submit(() -> bulk(() -> deleteJob(name))));
+                }
+            }
+        }
+
+        Map<String, Result> results = new LinkedHashMap<String, Result>();
+        try {
+            for (Map.Entry<String, Future<Result>> task : tasks.entrySet()) {
+                results.put(task.getKey(), result(task.getKey(), task.getValue()));
+            }
+        } catch (InterruptedException e) {
+            for (Future<Result> task : tasks.values()) {
+                task.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reconciling jobs");
+        }
+        return new ReconcileReport(results, System.nanoTime() - start);
+    }
+
+    /**
+     * Stop the reconciling threads
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private Result reconcileJob(String name, String xml, boolean exists) {
+        long start = System.nanoTime();
+        Action action = null;
+        try {
+            String current = exists ? server.getJobXml(name) : null;
+            action = current == null ? Action.CREATE
+                    : normalize(current).equals(normalize(xml)) ? Action.UNCHANGED : Action.UPDATE;
+            boolean apply = !dryRun && action != Action.UNCHANGED;
+            if (apply && action == Action.CREATE) {
+                server.createJob(name, xml);
+            } else if (apply) {
+                server.updateJob(name, xml);
+            }
+            return new Result(name, action, apply, null, System.nanoTime() - start);
+        } catch (IOException e) {
+            return new Result(name, action, false, e, System.nanoTime() - start);
+        }
+    }
+
+    private Result deleteJob(String name) {
+        long start = System.nanoTime();
+        try {
+            if (!dryRun) {
+                server.deleteJob(name);
+            }
+            return new Result(name, Action.DELETE, !dryRun, null, System.nanoTime() - start);
+        } catch (IOException e) {
+            return new Result(name, Action.DELETE, false, e, System.nanoTime() - start);
+        }
+    }
+
+    private static Result result(String name, Future<Result> task) throws InterruptedException {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            return new Result(name, null, false, new IOException(e.getCause()), 0);
+        }
+    }
+
+    private static <T> T bulk(RequestScheduler.Task<T> task) throws IOException {
+        return RequestScheduler.withPriority(RequestScheduler.Priority.BULK, task);
+    }
+
+    /**
+     * @param itemClass class of an item of the server, null if unknown
+     * @return whether the item holds other items, ex. {@code com.cloudbees.hudson.plugins.folder.Folder},
+     * {@code jenkins.branch.OrganizationFolder} or
+     * {@code org.jenkinsci.plugins.workflow.multibranch.WorkflowMultiBranchProject}
+     */
+    static boolean isContainer(String itemClass) {
+        return itemClass != null && (itemClass.endsWith("Folder") || itemClass.contains("MultiBranchProject"));
+    }
+
+    static String normalize(String xml) {
+        String normalized = DECLARATION.matcher(xml).replaceFirst("").replace("\r\n", "\n");
+        return BETWEEN_TAGS.matcher(normalized).replaceAll("><").trim();
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins;
+
+import com.offbytwo.jenkins.client.JenkinsHttpClient;
+import com.offbytwo.jenkins.client.Projection;
+import com.offbytwo.jenkins.model.BaseModel;
+import com.offbytwo.jenkins.model.Build;
+import com.offbytwo.jenkins.model.QueueItem;
+import com.offbytwo.jenkins.model.QueueReference;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Find the builds started for queue items, ex. those returned by {@link com.offbytwo.jenkins.model.Job#build()}.
+ * A single thread lists the ids of the queue once per tick for all the tracked items of a server, and only asks
+ * for the items which left the queue.
+ *
+ * To wait for the build to complete as well, chain with a {@link BuildWatcher}:
+ * {@code tracker.track(job.build()).thenCompose(watcher::watch)}
+ */
+public class QueueTracker implements Closeable {
+    static final Projection QUEUE = Projection.of("items[id]");
+    static final Projection ITEM = Projection.of("id,cancelled,executable[number,url]");
+    private static final int MAX_FAILURES = 5;
+
+    private final ConcurrentMap<String, Tracked> tracked = new ConcurrentHashMap<String, Tracked>();
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Poll the queue every second
+     */
+    public QueueTracker() {
+        this(1000);
+    }
+
+    /**
+     * @param intervalMillis time between two polls of the queue
+     */
+    public QueueTracker(long intervalMillis) {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jenkins-queue-tracker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::poll, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Track a queue item until it starts a build. Tracking the same item twice returns the same future;
+     * cancelling the future stops tracking the item.
+     *
+     * @param reference a queue item, holding the client to poll it with
+     * @return the build started for the item, failed if the item was cancelled or is unknown
+     */
+    public CompletableFuture<Build> track(QueueReference reference) {
+        if (reference.getQueueItemUrl() == null) {
+            CompletableFuture<Build> unknown = new CompletableFuture<Build>();
+            unknown.completeExceptionally(new IOException("The server did not return a queue item"));
+            return unknown;
+        }
+        Tracked created = new Tracked(reference);
+        Tracked existing = tracked.putIfAbsent(reference.getQueueItemUrl(), created);
+        return existing == null ? created.future : existing.future;
+    }
+
+    /**
+     * @return number of queue items being tracked
+     */
+    public int getTrackedCount() {
+        return tracked.size();
+    }
+
+    /**
+     * Stop polling, the pending futures are cancelled
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        for (Tracked item : tracked.values()) {
+            item.future.cancel(false);
+        }
+        tracked.clear();
+    }
+
+    void poll() {
+        Map<JenkinsHttpClient, List<Tracked>> byClient = new IdentityHashMap<JenkinsHttpClient, List<Tracked>>();
+        for (Tracked item : tracked.values()) {
+            if (item.future.isDone()) {
+                tracked.remove(item.reference.getQueueItemUrl(), item);
+                continue;
+            }
+            List<Tracked> items = byClient.get(item.reference.getClient());
+            if (items == null) {
+                items = new ArrayList<Tracked>();
+                byClient.put(item.reference.getClient(), items);
+            }
+            items.add(item);
+        }
+        for (Map.Entry<JenkinsHttpClient, List<Tracked>> items : byClient.entrySet()) {
+            pollQueue(items.getKey(), items.getValue());
+        }
+    }
+
+    private void pollQueue(JenkinsHttpClient client, List<Tracked> items) {
+        Set<Long> queued = new HashSet<Long>();
+        try {
+            Queue queue = client.get("/queue/", Queue.class, QUEUE);
+            if (queue != null && queue.getItems() != null) {
+                for (QueueItem item : queue.getItems()) {
+                    queued.add(item.getId());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Tracked item : items) {
+                failed(item, e);
+            }
+            return;
+        }
+        for (Tracked item : items) {
+            if (!queued.contains(item.reference.getId())) {
+                resolve(client, item);
+            }
+        }
+    }
+
+    private void resolve(JenkinsHttpClient client, Tracked tracked) {
+        try {
+            QueueItem item = client.get(tracked.reference.getQueueItemUrl(), QueueItem.class, ITEM);
+            if (item == null) {
+                finish(tracked, null, new IOException("Queue item " + tracked.reference.getQueueItemUrl()
+                        + " is unknown, it may have left the queue too long ago"));
+            } else if (item.isCancelled()) {
+                finish(tracked, null, new IOException("Queue item " + tracked.reference.getQueueItemUrl()
+                        + " was cancelled"));
+            } else if (item.getExecutable() != null) {
+                finish(tracked, item.getExecutable(), null);
+            }
+            // otherwise not yet started, look again on next tick
+            tracked.failures = 0;
+        } catch (IOException | RuntimeException e) {
+            failed(tracked, e);
+        }
+    }
+
+    private void failed(Tracked item, Exception failure) {
+        if (++item.failures >= MAX_FAILURES) {
+            finish(item, null, failure);
+        }
+    }
+
+    private void finish(Tracked item, Build build, Throwable failure) {
+        tracked.remove(item.reference.getQueueItemUrl(), item);
+        if (failure == null) {
+            item.future.complete(build);
+        } else {
+            item.future.completeExceptionally(failure);
+        }
+    }
+
+    private static class Tracked {
+        final QueueReference reference;
+        final CompletableFuture<Build> future = new CompletableFuture<Build>();
+        // only used by the scheduler thread
+        int failures;
+
+        Tracked(QueueReference reference) {
+            this.reference = reference;
+        }
+    }
+
+    /**
+     * The items waiting in the queue
+     */
+    static class Queue extends BaseModel {
+        List<QueueItem> items;
+
+        public List<QueueItem> getItems() {
+            return items;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome of a {@link JobReconciler#reconcile(Map, boolean)}, job by job
+ */
+public class ReconcileReport {
+
+    public enum Action {
+        CREATE, UPDATE, DELETE, UNCHANGED
+    }
+
+    /**
+     * What was done to one job
+     */
+    public static class Result {
+        private final String jobName;
+        private final Action action;
+        private final boolean applied;
+        private final IOException failure;
+        private final long elapsedNanos;
+
+        public Result(String jobName, Action action, boolean applied, IOException failure, long elapsedNanos) {
+            this.jobName = jobName;
+            this.action = action;
+            this.applied = applied;
+            this.failure = failure;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public String getJobName() {
+            return jobName;
+        }
+
+        /**
+         * @return what the job needed, null if its current configuration could not be read
+         */
+        public Action getAction() {
+            return action;
+        }
+
+        /**
+         * @return whether the action was made on the server, false for a dry run or a failure
+         */
+        public boolean isApplied() {
+            return applied;
+        }
+
+        /**
+         * @return why the job could not be reconciled, null on success
+         */
+        public IOException getFailure() {
+            return failure;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return jobName + ": " + (failure != null ? action + " failed, " + failure : action);
+        }
+    }
+
+    private final Map<String, Result> results;
+    private final long elapsedNanos;
+
+    public ReconcileReport(Map<String, Result> results, long elapsedNanos) {
+        this.results = Collections.unmodifiableMap(new LinkedHashMap<String, Result>(results));
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the result of every job, by name
+     */
+    public Map<String, Result> getResults() {
+        return results;
+    }
+
+    /**
+     * @return number of jobs which needed the given action
+     */
+    public int count(Action action) {
+        int count = 0;
+        for (Result result : results.values()) {
+            if (result.getAction() == action) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the jobs which could not be reconciled, by name
+     */
+    public Map<String, IOException> getFailures() {
+        Map<String, IOException> failures = new LinkedHashMap<String, IOException>();
+        for (Result result : results.values()) {
+            if (result.getFailure() != null) {
+                failures.put(result.getJobName(), result.getFailure());
+            }
+        }
+        return failures;
+    }
+
+    public boolean isSuccessful() {
+        return getFailures().isEmpty();
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d created, %d updated, %d deleted, %d unchanged in %.1f s, %d failures",
+                count(Action.CREATE), count(Action.UPDATE), count(Action.DELETE), count(Action.UNCHANGED),
+                elapsedNanos / 1e9, getFailures().size());
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limit the number of requests a {@link JenkinsHttpClient} has in flight, adapting the limit to how the server
+ * copes: additive increase while responses come back as fast as usual, multiplicative decrease on {@code 5xx} and
+ * {@code 429} responses, failures, and responses much slower than usual. Requests over the limit wait for a
+ * request in flight to be released.
+ *
+ * The response time is measured up to the first byte of the response, and compared to the long term average of
+ * its endpoint, ex. {@code /job/{name}/api/json}, as some endpoints are always slower than others.
+ */
+public class AdaptiveLimiter {
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final double RTT_TOLERANCE = 2.0;
+    private static final double RTT_SMOOTHING = 0.05;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    // guarded by lock
+    private double limit;
+    private int inFlight;
+    private int waiting;
+    private double averageRttNanos;
+    private final Map<String, Double> averageRttNanosByEndpoint = new HashMap<String, Double>();
+    private long lastDecrease;
+
+    /**
+     * Start with 8 requests in flight, adapt between 1 and 64
+     */
+    public AdaptiveLimiter() {
+        this(1, 64, 8);
+    }
+
+    /**
+     * @param minLimit lowest limit
+     * @param maxLimit highest limit
+     * @param initialLimit limit to start with
+     */
+    public AdaptiveLimiter(int minLimit, int maxLimit, int initialLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * @return number of requests allowed in flight
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of requests in flight
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of requests waiting to be sent
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until a request can be sent
+     *
+     * @throws InterruptedIOException
+     */
+    void acquire() throws InterruptedIOException {
+        lock.lock();
+        try {
+            waiting++;
+            while (inFlight >= (int) limit) {
+                available.await();
+            }
+            inFlight++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to send a request");
+        } finally {
+            waiting--;
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called once a request sent after {@link #acquire()} is over
+     */
+    void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param endpoint template of the request path, see {@link com.offbytwo.jenkins.client.metrics.EndpointTemplates}
+     * @param rttNanos time from sending the request to receiving the response headers
+     * @param status status of the response
+     */
+    void onResponse(String endpoint, long rttNanos, int status) {
+        lock.lock();
+        try {
+            if (status == 429 || status >= 500) {
+                decrease();
+                return;
+            }
+            Double average = averageRttNanosByEndpoint.get(endpoint);
+            // slow responses count in the average too, so that it follows a lasting change of the server
+            averageRttNanosByEndpoint.put(endpoint, smooth(average == null ? 0 : average, rttNanos));
+            averageRttNanos = smooth(averageRttNanos, rttNanos);
+            if (average != null && rttNanos > RTT_TOLERANCE * average) {
+                decrease();
+            } else {
+                increase();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called when a request failed without response
+     */
+    void onFailure() {
+        lock.lock();
+        try {
+            decrease();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static double smooth(double average, long rttNanos) {
+        return average == 0 ? rttNanos : average + RTT_SMOOTHING * (rttNanos - average);
+    }
+
+    private void increase() {
+        // only grow a limit which is actually reached
+        if (inFlight * 2 < limit) {
+            return;
+        }
+        int before = (int) limit;
+        limit = Math.min(maxLimit, limit + 1 / limit);
+        if ((int) limit > before) {
+            available.signalAll();
+        }
+    }
+
+    private void decrease() {
+        // requests in flight together fail together, back off once per round trip
+        long now = System.nanoTime();
+        if (now - lastDecrease < Math.max(averageRttNanos, 1000000)) {
+            return;
+        }
+        lastDecrease = now;
+        limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+    }
+}
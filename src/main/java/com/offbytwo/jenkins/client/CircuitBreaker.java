@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stop sending requests to a server which looks down, ex. while Jenkins restarts, instead of piling up requests
+ * which will time out.
+ *
+ * After {@code failureThreshold} consecutive failures, connection errors or {@code 502}, {@code 503} and
+ * {@code 504} responses, the breaker opens and requests fail at once with a {@link CircuitBreakerOpenException}.
+ * Once {@code openMillis} have passed, the next request probes the server: with the probe set by
+ * {@link com.offbytwo.jenkins.JenkinsServer#setCircuitBreaker(CircuitBreaker)}, or by being sent itself when there
+ * is no probe. The breaker closes if the probe succeeds, and opens again otherwise.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Tells whether the server is back
+     */
+    public interface Probe {
+        boolean isUp();
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final AtomicReference<State> state = new AtomicReference<State>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private final ThreadLocal<Boolean> probing = new ThreadLocal<Boolean>();
+    private volatile long openedAt;
+    private volatile Probe probe;
+
+    /**
+     * Open after 5 consecutive failures, for 10 seconds
+     */
+    public CircuitBreaker() {
+        this(5, 10000);
+    }
+
+    /**
+     * @param failureThreshold number of consecutive failures opening the breaker
+     * @param openMillis time to wait before probing the server again
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * @param probe how to check whether the server is back, null to send the next request as the probe
+     */
+    public void setProbe(Probe probe) {
+        this.probe = probe;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * @return number of requests which failed at once because the breaker was open
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Called before sending each request
+     *
+     * @return whether the request is sent as the probe, the caller must then report its {@link #success()} or
+     * {@link #failure()} whatever happens
+     * @throws CircuitBreakerOpenException when the request must not be sent
+     */
+    boolean acquire() throws CircuitBreakerOpenException {
+        if (probing.get() != null || state.get() == State.CLOSED) {
+            return false;
+        }
+        if (state.get() == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            Probe current = probe;
+            if (current == null) {
+                // this request is the probe
+                return true;
+            }
+            if (probe(current)) {
+                success();
+                return false;
+            }
+            open();
+        }
+        rejected.incrementAndGet();
+        throw new CircuitBreakerOpenException("The server looks down, not sending requests for "
+                + Math.max(0, openedAt + openMillis - System.currentTimeMillis()) + " ms");
+    }
+
+    /**
+     * Called after a response showing the server is up
+     */
+    void success() {
+        if (probing.get() != null) {
+            return;
+        }
+        consecutiveFailures.set(0);
+        state.set(State.CLOSED);
+    }
+
+    /**
+     * Called after a failure to connect, or a response showing the server is down
+     */
+    void failure() {
+        if (probing.get() != null) {
+            return;
+        }
+        if (state.get() == State.HALF_OPEN || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open();
+        }
+    }
+
+    static boolean isOutage(int status) {
+        return status == 502 || status == 503 || status == 504;
+    }
+
+    private boolean probe(Probe current) {
+        probing.set(Boolean.TRUE);
+        try {
+            return current.isUp();
+        } catch (RuntimeException e) {
+            return false;
+        } finally {
+            probing.remove();
+        }
+    }
+
+    private void open() {
+        openedAt = System.currentTimeMillis();
+        consecutiveFailures.set(0);
+        state.set(State.OPEN);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+/**
+ * Settings for the pooled connection manager used by {@link JenkinsHttpClient} when it is shared between
+ * several threads.
+ */
+public class ConnectionPoolSettings {
+    private int maxTotal = 20;
+    private int maxPerRoute = 20;
+    private long keepAliveMillis = 30000;
+    private long idleTimeoutMillis = 30000;
+    private long evictionIntervalMillis = 5000;
+
+    public ConnectionPoolSettings() {
+    }
+
+    public ConnectionPoolSettings(int maxTotal, int maxPerRoute) {
+        this.maxTotal = maxTotal;
+        this.maxPerRoute = maxPerRoute;
+    }
+
+    /**
+     * @return maximum number of open connections over all routes
+     */
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public void setMaxTotal(int maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+
+    /**
+     * @return maximum number of open connections to a single host
+     */
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    public void setMaxPerRoute(int maxPerRoute) {
+        this.maxPerRoute = maxPerRoute;
+    }
+
+    /**
+     * @return how long a connection is kept alive when the server does not send a Keep-Alive timeout
+     */
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    public void setKeepAliveMillis(long keepAliveMillis) {
+        this.keepAliveMillis = keepAliveMillis;
+    }
+
+    /**
+     * @return how long a connection may sit unused in the pool before it is closed
+     */
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * @return how often expired and idle connections are evicted from the pool
+     */
+    public long getEvictionIntervalMillis() {
+        return evictionIntervalMillis;
+    }
+
+    public void setEvictionIntervalMillis(long evictionIntervalMillis) {
+        this.evictionIntervalMillis = evictionIntervalMillis;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Report the number of bytes read from a response entity to its {@link RequestTrace}.
+ */
+final class CountingEntity extends HttpEntityWrapper {
+    private final RequestTrace trace;
+    private InputStream content;
+
+    CountingEntity(HttpEntity entity, RequestTrace trace) {
+        super(entity);
+        this.trace = trace;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        if (content == null || isRepeatable()) {
+            content = new FilterInputStream(super.getContent()) {
+                @Override
+                public int read() throws IOException {
+                    int read = super.read();
+                    if (read != -1) {
+                        trace.bytesRead(1);
+                    }
+                    return read;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int read = super.read(buffer, offset, length);
+                    if (read > 0) {
+                        trace.bytesRead(read);
+                    }
+                    return read;
+                }
+
+                @Override
+                public long skip(long n) throws IOException {
+                    long skipped = super.skip(n);
+                    trace.bytesRead(skipped);
+                    return skipped;
+                }
+            };
+        }
+        return content;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        InputStream in = getContent();
+        try {
+            byte[] buffer = new byte[4096];
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.offbytwo.jenkins.model.BaseModel;
+import com.offbytwo.jenkins.model.BuildWithDetails;
+import com.offbytwo.jenkins.model.JobWithDetails;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds and jobs already fetched, returned instead of requesting them again. Completed builds never change and
+ * are kept until the total estimated size of the kept builds exceeds a limit; builds in progress and jobs are
+ * kept for a short time only.
+ *
+ * Models are keyed by the URL they were fetched from, projection included, and returned from the cache are
+ * shared between callers so must not be modified.
+ */
+public class DomainCache {
+    private final Cache<String, BuildWithDetails> completedBuilds;
+    private final Cache<String, BaseModel> recent;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxCompletedBuildsBytes estimated heap size of the completed builds kept, least recently used are
+     *                                evicted first
+     * @param maxRecentEntries number of builds in progress and jobs kept
+     * @param recentTtlMillis time during which builds in progress and jobs are reused
+     */
+    public DomainCache(long maxCompletedBuildsBytes, long maxRecentEntries, long recentTtlMillis) {
+        this.completedBuilds = CacheBuilder.newBuilder()
+                .maximumWeight(maxCompletedBuildsBytes)
+                .weigher(new Weigher<String, BuildWithDetails>() {
+                    @Override
+                    public int weigh(String key, BuildWithDetails build) {
+                        return estimateSize(key, build);
+                    }
+                })
+                .build();
+        this.recent = CacheBuilder.newBuilder()
+                .maximumSize(maxRecentEntries)
+                .expireAfterWrite(recentTtlMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * @return number of lookups answered from the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of lookups that had to be fetched
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of completed builds kept
+     */
+    public long getCompletedBuilds() {
+        return completedBuilds.size();
+    }
+
+    /**
+     * Forget what was kept for the given URL and below it, ex. a job and its builds after changing the job
+     *
+     * @param url url of a job or a build, as in {@link com.offbytwo.jenkins.model.Job#getUrl()}
+     * @param client client the models were fetched with
+     */
+    public void invalidate(String url, JenkinsHttpClient client) {
+        String prefix = client.correctPath(url.endsWith("/") ? url : url + "/").toString();
+        invalidate(recent, prefix);
+        invalidate(completedBuilds, prefix);
+    }
+
+    public void invalidateAll() {
+        recent.invalidateAll();
+        completedBuilds.invalidateAll();
+    }
+
+    private static void invalidate(Cache<String, ?> cache, String prefix) {
+        for (String key : cache.asMap().keySet()) {
+            if (key.startsWith(prefix, key.indexOf(' ') + 1)) {
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    static boolean isCached(Class<?> cls) {
+        return BuildWithDetails.class.isAssignableFrom(cls) || JobWithDetails.class.isAssignableFrom(cls);
+    }
+
+    <T extends BaseModel> T get(URI uri, Class<T> cls) {
+        String key = key(uri, cls);
+        BaseModel model = completedBuilds.getIfPresent(key);
+        if (model == null) {
+            model = recent.getIfPresent(key);
+        }
+        if (model == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return cls.cast(model);
+    }
+
+    <T extends BaseModel> void put(URI uri, Class<T> cls, T model) {
+        if (model == null) {
+            return;
+        }
+        String key = key(uri, cls);
+        if (model instanceof BuildWithDetails && isCompleted((BuildWithDetails) model)) {
+            completedBuilds.put(key, (BuildWithDetails) model);
+            recent.invalidate(key);
+        } else {
+            recent.put(key, model);
+        }
+    }
+
+    private static boolean isCompleted(BuildWithDetails build) {
+        // projections may leave out "building", but a result is only set once the build is over
+        return !build.isBuilding() && build.getResult() != null;
+    }
+
+    private static String key(URI uri, Class<?> cls) {
+        return cls.getName() + " " + uri;
+    }
+
+    /**
+     * A rough estimate of the heap used by a build: fixed fields, strings and a flat cost per artifact and action
+     */
+    private static int estimateSize(String key, BuildWithDetails build) {
+        long size = 256 + 2L * key.length();
+        size += 2L * length(build.getUrl()) + 2L * length(build.getDescription())
+                + 2L * length(build.getFullDisplayName()) + 2L * length(build.getId());
+        size += 256L * count(build.getArtifacts()) + 512L * count(build.getActions());
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static int count(List<?> values) {
+        return values == null ? 0 : values.size();
+    }
+}
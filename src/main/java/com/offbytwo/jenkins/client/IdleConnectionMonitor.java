@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import org.apache.http.conn.ClientConnectionManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background thread closing pooled connections that expired or stayed idle for too long, so that the pool does
+ * not hand out sockets the server already dropped.
+ */
+class IdleConnectionMonitor extends Thread {
+    private final ClientConnectionManager connectionManager;
+    private final long idleTimeoutMillis;
+    private final long intervalMillis;
+    private volatile boolean shutdown;
+
+    IdleConnectionMonitor(ClientConnectionManager connectionManager, long idleTimeoutMillis, long intervalMillis) {
+        super("jenkins-client-idle-connection-monitor");
+        setDaemon(true);
+        this.connectionManager = connectionManager;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.intervalMillis = intervalMillis;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!shutdown) {
+                synchronized (this) {
+                    wait(intervalMillis);
+                }
+                connectionManager.closeExpiredConnections();
+                connectionManager.closeIdleConnections(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            // terminate
+        }
+    }
+
+    void shutdown() {
+        shutdown = true;
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+}
@@ -7,11 +7,14 @@
 package com.offbytwo.jenkins.client;
 
 import com.google.common.io.CharStreams;
+import com.offbytwo.jenkins.client.metrics.RequestListener;
 import com.offbytwo.jenkins.client.validator.HttpResponseValidator;
 import com.offbytwo.jenkins.model.BaseModel;
 import com.offbytwo.jenkins.model.Crumb;
 import com.offbytwo.jenkins.tools.Utils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.http.Consts;
+import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
 import org.apache.http.auth.AuthScope;
@@ -20,33 +23,63 @@ import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
 import org.apache.http.message.BasicHeader;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
 
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
 
 import static org.apache.commons.lang.StringUtils.isNotBlank;
 
-public class JenkinsHttpClient {
+public class JenkinsHttpClient implements Closeable {
 
     private URI uri;
     private DefaultHttpClient client;
     private BasicHttpContext localContext;
     private HttpResponseValidator httpResponseValidator;
+    private IdleConnectionMonitor idleConnectionMonitor;
+    private volatile RequestListener requestListener;
+    private volatile ResponseCache responseCache;
+    private volatile DomainCache domainCache;
+    private final SingleFlight singleFlight = new SingleFlight();
+    private volatile boolean coalesceRequests;
+    private volatile RetryPolicy retryPolicy;
+    private volatile CircuitBreaker circuitBreaker;
+    private volatile AdaptiveLimiter concurrencyLimiter;
+    private volatile RequestScheduler requestScheduler;
+    private volatile RateLimiter rateLimiter;
+
+    private final Object crumbLock = new Object();
+    private volatile Crumb crumb;
+    private volatile boolean crumbLoaded;
 
     private String context;
 
@@ -83,7 +116,19 @@ public class JenkinsHttpClient {
      * @param password Password or auth token to use when connecting
      */
     public JenkinsHttpClient(URI uri, String username, String password) {
-        this(uri);
+        this(uri, new DefaultHttpClient(), username, password);
+    }
+
+    /**
+     * Create an authenticated Jenkins HTTP client
+     *
+     * @param uri Location of the jenkins server (ex. http://localhost:8080)
+     * @param defaultHttpClient Configured DefaultHttpClient to be used
+     * @param username Username to use when connecting
+     * @param password Password or auth token to use when connecting
+     */
+    public JenkinsHttpClient(URI uri, DefaultHttpClient defaultHttpClient, String username, String password) {
+        this(uri, defaultHttpClient);
         if (isNotBlank(username)) {
             CredentialsProvider provider = client.getCredentialsProvider();
             AuthScope scope = new AuthScope(uri.getHost(), uri.getPort(), "realm");
@@ -96,6 +141,32 @@ public class JenkinsHttpClient {
         }
     }
 
+    /**
+     * Create an unauthenticated Jenkins HTTP client backed by a pool of keep-alive connections. The client can be
+     * shared between threads.
+     *
+     * @param uri Location of the jenkins server (ex. http://localhost:8080)
+     * @param poolSettings limits and timeouts of the connection pool
+     */
+    public JenkinsHttpClient(URI uri, ConnectionPoolSettings poolSettings) {
+        this(uri, null, null, poolSettings);
+    }
+
+    /**
+     * Create an authenticated Jenkins HTTP client backed by a pool of keep-alive connections. The client can be
+     * shared between threads.
+     *
+     * @param uri Location of the jenkins server (ex. http://localhost:8080)
+     * @param username Username to use when connecting
+     * @param password Password or auth token to use when connecting
+     * @param poolSettings limits and timeouts of the connection pool
+     */
+    public JenkinsHttpClient(URI uri, String username, String password, ConnectionPoolSettings poolSettings) {
+        this(uri, createPooledHttpClient(poolSettings), username, password);
+        this.idleConnectionMonitor = new IdleConnectionMonitor(client.getConnectionManager(),
+                poolSettings.getIdleTimeoutMillis(), poolSettings.getEvictionIntervalMillis());
+        this.idleConnectionMonitor.start();
+    }
 
   /**
    * Perform a GET request and parse the response to the given class
@@ -107,17 +178,23 @@ public class JenkinsHttpClient {
    * @throws IOException
    */
   public <T extends BaseModel> T get(String path, Class<T> cls) throws IOException {
-    HttpGet getMethod = new HttpGet(jsonApi(path));
-    HttpResponse response = client.execute(getMethod, localContext);
-    try {
-      httpResponseValidator.validateResponse(response);
-      return httpResponseValidator.isNotFound(response) ? null : objectFromResponse(cls, response);
-    } finally {
-      EntityUtils.consume(response.getEntity());
-      releaseConnection(getMethod);
-    }
+    return getModel(jsonApi(path), cls);
   }
 
+    /**
+     * Perform a GET request returning only the projected part of the JSON and parse it to the given class
+     *
+     * @param path path to request, can be relative or absolute
+     * @param cls class of the response
+     * @param projection the subset of the response to request
+     * @param <T> type of the response
+     * @return an instance of the supplied class
+     * @throws IOException
+     */
+    public <T extends BaseModel> T get(String path, Class<T> cls, Projection projection) throws IOException {
+        return get(projection.appendTo(path), cls);
+    }
+
   /**
    * Perform a GET request and parse the response to the given class
    *
@@ -128,17 +205,128 @@ public class JenkinsHttpClient {
    * @throws IOException
    */
   public <T extends BaseModel> T getXml(String path, Class<T> cls) throws IOException {
-    HttpGet getMethod = new HttpGet(correctPath(path));
-    HttpResponse response = client.execute(getMethod, localContext);
-    try {
-      httpResponseValidator.validateResponse(response);
-      return httpResponseValidator.isNotFound(response) ? null : objectFromResponse(cls, response);
-    } finally {
-      EntityUtils.consume(response.getEntity());
-      releaseConnection(getMethod);
-    }
+    return getModel(correctPath(path), cls);
   }
 
+    private <T extends BaseModel> T getModel(URI uri, Class<T> cls) throws IOException {
+        DomainCache domain = domainCache;
+        if (domain == null || !DomainCache.isCached(cls)) {
+            return coalescedModel(uri, cls);
+        }
+        T cached = domain.get(uri, cls);
+        if (cached != null) {
+            return cached;
+        }
+        T fetched = coalescedModel(uri, cls);
+        domain.put(uri, cls, fetched);
+        return fetched;
+    }
+
+    private <T extends BaseModel> T coalescedModel(final URI uri, final Class<T> cls) throws IOException {
+        if (!coalesceRequests) {
+            return fetchModel(uri, cls);
+        }
+        return singleFlight.execute(cls.getName() + " " + uri, () -> fetchModel(uri, cls));
+    }
+
+    private <T extends BaseModel> T fetchModel(URI uri, Class<T> cls) throws IOException {
+        ResponseCache cache = responseCache;
+        if (cache != null) {
+            return getCached(uri, cls, cache);
+        }
+        HttpGet getMethod = new HttpGet(uri);
+        RequestTrace trace = newTrace(getMethod);
+        HttpResponse response = execute(getMethod, trace);
+        try {
+            httpResponseValidator.validateResponse(response);
+            return httpResponseValidator.isNotFound(response) ? null : objectFromResponse(cls, response, trace);
+        } finally {
+            EntityUtils.consume(response.getEntity());
+            releaseConnection(getMethod, trace);
+        }
+    }
+
+    /**
+     * Perform a GET request through the response cache: a response matching the cached one, by its validators
+     * or by its body, returns the cached model without parsing
+     */
+    private <T extends BaseModel> T getCached(URI uri, Class<T> cls, ResponseCache cache) throws IOException {
+        String key = cls.getName() + " " + uri;
+        ResponseCache.Entry cached = cache.get(key);
+        HttpGet getMethod = new HttpGet(uri);
+        if (cached != null) {
+            cached.addValidators(getMethod);
+        }
+        RequestTrace trace = newTrace(getMethod);
+        HttpResponse response = execute(getMethod, trace);
+        try {
+            if (cached != null && response.getStatusLine().getStatusCode() == 304) {
+                return cls.cast(cache.hit(key, cached, response));
+            }
+            httpResponseValidator.validateResponse(response);
+            if (httpResponseValidator.isNotFound(response)) {
+                cache.remove(key);
+                return null;
+            }
+            byte[] body = EntityUtils.toByteArray(response.getEntity());
+            byte[] digest = ResponseCache.digest(body);
+            if (cached != null && cached.matches(digest)) {
+                return cls.cast(cache.hit(key, cached, response));
+            }
+            T result = objectFromResponse(cls, response, new ByteArrayInputStream(body), trace);
+            cache.miss(key, response, digest, result);
+            return result;
+        } finally {
+            EntityUtils.consume(response.getEntity());
+            releaseConnection(getMethod, trace);
+        }
+    }
+
+    /**
+     * Perform a GET request and hand the elements of one array field of the response to the visitor while the
+     * response is read, ex. the {@code jobs} of {@code /}. Elements are not retained, so arbitrarily large
+     * listings can be processed in constant memory.
+     *
+     * @param path path to request, can be relative or absolute
+     * @param arrayField name of the top level array field to read
+     * @param cls class of the array elements
+     * @param visitor receives each element, may stop the reading early
+     * @param <T> type of the elements
+     * @throws IOException
+     */
+    public <T extends BaseModel> void stream(String path, String arrayField, Class<T> cls,
+                                             final ModelVisitor<? super T> visitor) throws IOException {
+        HttpGet getMethod = new HttpGet(jsonApi(path));
+        RequestTrace trace = newTrace(getMethod);
+        HttpResponse response = execute(getMethod, trace);
+        boolean completed = false;
+        try {
+            httpResponseValidator.validateResponse(response);
+            if (httpResponseValidator.isNotFound(response)) {
+                completed = true;
+            } else {
+                long started = System.nanoTime();
+                completed = JsonArrayReader.read(response.getEntity().getContent(), arrayField, cls,
+                        new ModelVisitor<T>() {
+                            @Override
+                            public boolean visit(T element) throws IOException {
+                                element.setClient(JenkinsHttpClient.this);
+                                return visitor.visit(element);
+                            }
+                        });
+                trace.parsed(System.nanoTime() - started);
+            }
+        } finally {
+            if (completed) {
+                EntityUtils.consume(response.getEntity());
+            } else {
+                // stopped or failed: do not download the rest just to reuse the connection
+                getMethod.abort();
+            }
+            releaseConnection(getMethod, trace);
+        }
+    }
+
     /**
      * Perform a GET request and parse the response and return a simple string of the content
      *
@@ -147,24 +335,70 @@ public class JenkinsHttpClient {
      * @throws IOException
      */
     public String get(String path) throws IOException {
-        HttpGet getMethod = new HttpGet(jsonApi(path));
-        HttpResponse response = client.execute(getMethod, localContext);
+        final URI uri = jsonApi(path);
+        if (!coalesceRequests) {
+            return fetchString(uri);
+        }
+        return singleFlight.execute("String " + uri, () -> fetchString(uri));
+    }
+
+    private String fetchString(URI uri) throws IOException {
+        HttpGet getMethod = new HttpGet(uri);
+        RequestTrace trace = newTrace(getMethod);
+        HttpResponse response = execute(getMethod, trace);
         try {
             httpResponseValidator.validateResponse(response);
             if (response.getStatusLine().getStatusCode() != 404) {
-              Scanner s = new Scanner(response.getEntity().getContent());
-              s.useDelimiter("\\z");
-              StringBuffer sb = new StringBuffer();
-              while (s.hasNext()) {
-                sb.append(s.next());
-              }
-              return sb.toString();
+              return EntityUtils.toString(response.getEntity(), Consts.UTF_8);
             } else {
               return null;
             }
         } finally {
             EntityUtils.consume(response.getEntity());
-            releaseConnection(getMethod);
+            releaseConnection(getMethod, trace);
+        }
+    }
+
+    /**
+     * Perform a GET request of a progressive text resource, ex. {@code logText/progressiveText}, and copy the text
+     * from the given offset to the channel as it is received. The channel is written to in blocking mode, so a
+     * slow channel slows down the download instead of buffering the text.
+     *
+     * @param path path to request, can be relative or absolute
+     * @param start offset of the first byte to read
+     * @param channel where to write the text, must be blocking
+     * @return the offset to continue from and whether more text is expected, null if not found
+     * @throws IOException
+     */
+    public ProgressiveText getProgressiveText(String path, long start, WritableByteChannel channel)
+            throws IOException {
+        HttpGet getMethod = new HttpGet(correctPath(path + (path.contains("?") ? "&" : "?") + "start=" + start));
+        RequestTrace trace = newTrace(getMethod);
+        HttpResponse response = execute(getMethod, trace);
+        try {
+            httpResponseValidator.validateResponse(response);
+            if (httpResponseValidator.isNotFound(response)) {
+                return null;
+            }
+            long read = 0;
+            if (response.getEntity() != null) {
+                ReadableByteChannel source = Channels.newChannel(response.getEntity().getContent());
+                ByteBuffer buffer = ByteBuffer.allocate(8192);
+                while (source.read(buffer) != -1) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        read += channel.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            }
+            Header textSize = response.getFirstHeader("X-Text-Size");
+            Header moreData = response.getFirstHeader("X-More-Data");
+            long nextStart = textSize == null ? start + read : Long.parseLong(textSize.getValue().trim());
+            return new ProgressiveText(nextStart, moreData != null && Boolean.parseBoolean(moreData.getValue()), read);
+        } finally {
+            EntityUtils.consume(response.getEntity());
+            releaseConnection(getMethod, trace);
         }
     }
 
@@ -172,18 +406,143 @@ public class JenkinsHttpClient {
      * Perform a GET request and return the response as InputStream
      *
      * @param path path to request, can be relative or absolute
-     * @return the response stream
+     * @return the response stream, to be closed to release the connection, null if not found
      * @throws IOException
      */
     public InputStream getFile(URI path) throws IOException {
+        final HttpGet getMethod = new HttpGet(path);
+        final RequestTrace trace = newTrace(getMethod);
+        HttpResponse response = execute(getMethod, trace);
+        boolean streaming = false;
+        try {
+            httpResponseValidator.validateResponse(response);
+            if (httpResponseValidator.isNotFound(response) || response.getEntity() == null) {
+                return null;
+            }
+            InputStream stream = new FilterInputStream(response.getEntity().getContent()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        releaseConnection(getMethod, trace);
+                    }
+                }
+            };
+            streaming = true;
+            return stream;
+        } finally {
+            if (!streaming) {
+                EntityUtils.consume(response.getEntity());
+                releaseConnection(getMethod, trace);
+            }
+        }
+    }
+
+    /**
+     * Perform a HEAD request to learn the size of a file and whether it can be downloaded in parts
+     *
+     * @param path path to request, can be relative or absolute
+     * @return what the server tells about the file, null if not found
+     * @throws IOException
+     */
+    public RemoteFile head(URI path) throws IOException {
+        HttpHead headMethod = new HttpHead(path);
+        RequestTrace trace = newTrace(headMethod);
+        HttpResponse response = execute(headMethod, trace);
+        try {
+            httpResponseValidator.validateResponse(response);
+            if (httpResponseValidator.isNotFound(response)) {
+                return null;
+            }
+            Header length = response.getFirstHeader("Content-Length");
+            Header ranges = response.getFirstHeader("Accept-Ranges");
+            Header etag = response.getFirstHeader("ETag");
+            Header lastModified = response.getFirstHeader("Last-Modified");
+            return new RemoteFile(length == null ? -1 : Long.parseLong(length.getValue().trim()),
+                    ranges != null && "bytes".equalsIgnoreCase(ranges.getValue().trim()),
+                    etag == null ? null : etag.getValue(), lastModified == null ? null : lastModified.getValue());
+        } finally {
+            EntityUtils.consume(response.getEntity());
+            releaseConnection(headMethod, trace);
+        }
+    }
+
+    /**
+     * Perform a GET request of a range of a file and write it at the same position of the given file. The body
+     * is transferred to the file channel without going through the heap, and ranges of the same file can be
+     * downloaded concurrently as the position of the channel is left untouched.
+     *
+     * @param path path to request, can be relative or absolute
+     * @param start position of the first byte to download
+     * @param end position of the last byte to download, inclusive, or -1 for the end of the file
+     * @param file where to write the bytes, at least {@code start} bytes long
+     * @return number of bytes written, -1 if not found
+     * @throws IOException when the server ignored the range or sent less than asked
+     */
+    public long getRange(URI path, long start, long end, FileChannel file) throws IOException {
+        return getRange(path, start, end, file, null);
+    }
+
+    /**
+     * Perform a GET request of a range of a file, as long as the file is still the version described by a previous
+     * {@link #head(URI)}, and write it at the same position of the given file.
+     *
+     * @param path path to request, can be relative or absolute
+     * @param start position of the first byte to download
+     * @param end position of the last byte to download, inclusive, or -1 for the end of the file
+     * @param file where to write the bytes, at least {@code start} bytes long
+     * @param version the file as it was when the download started, null if unknown
+     * @return number of bytes written, -1 if not found
+     * @throws IOException when the server ignored the range, sent less than asked or the file changed
+     */
+    public long getRange(URI path, long start, long end, FileChannel file, RemoteFile version) throws IOException {
         HttpGet getMethod = new HttpGet(path);
-        HttpResponse response = client.execute(getMethod, localContext);
+        getMethod.addHeader("Range", "bytes=" + start + "-" + (end < 0 ? "" : String.valueOf(end)));
+        String validator = version == null ? null : version.getRangeValidator();
+        if (validator != null) {
+            // a file changed since answers with all of its new content instead of the range
+            getMethod.addHeader("If-Range", validator);
+        }
+        RequestTrace trace = newTrace(getMethod);
+        HttpResponse response = execute(getMethod, trace);
         try {
             httpResponseValidator.validateResponse(response);
-            return httpResponseValidator.isNotFound(response) ? null : response.getEntity().getContent();
+            if (httpResponseValidator.isNotFound(response)) {
+                return -1;
+            }
+            if (response.getEntity() == null) {
+                return 0;
+            }
+            boolean partial = response.getStatusLine().getStatusCode() == 206;
+            if (!partial && (start > 0 || version != null)) {
+                throw new IOException(validator != null ? path + " changed during the download"
+                        : "The server ignored the range request for " + path);
+            }
+            Header etag = response.getFirstHeader("ETag");
+            if (version != null && version.getEtag() != null && etag != null
+                    && !version.getEtag().equals(etag.getValue())) {
+                throw new IOException(path + " changed during the download");
+            }
+            long length = response.getEntity().getContentLength();
+            long expected = partial && end >= 0 ? end - start + 1 : length;
+            long count = expected < 0 ? Long.MAX_VALUE : expected;
+            ReadableByteChannel source = Channels.newChannel(response.getEntity().getContent());
+            long written = 0;
+            while (written < count) {
+                long transferred = file.transferFrom(source, start + written, count - written);
+                if (transferred == 0) {
+                    break;
+                }
+                written += transferred;
+            }
+            if (expected >= 0 && written < expected) {
+                throw new IOException("Received " + written + " of " + expected + " bytes from " + path);
+            }
+            return written;
         } finally {
             EntityUtils.consume(response.getEntity());
-            releaseConnection(getMethod);
+            releaseConnection(getMethod, trace);
         }
     }
 
@@ -200,28 +559,24 @@ public class JenkinsHttpClient {
      */
     public <R extends BaseModel, D> R post(String path, D data, Class<R> cls) throws IOException {
         HttpPost request = new HttpPost(jsonApi(path));
-        Crumb crumb = get("/crumbIssuer", Crumb.class);
-        if (crumb != null) {
-            request.addHeader(new BasicHeader(crumb.getCrumbRequestField(), crumb.getCrumb()));
-        }
-
         if (data != null) {
             StringEntity stringEntity = new StringEntity(Utils.getJsonMapper().writeValueAsString(data), "application/json");
             request.setEntity(stringEntity);
         }
 
-        HttpResponse response = client.execute(request, localContext);
+        RequestTrace trace = newTrace(request);
+        HttpResponse response = executeWithCrumb(request, trace);
         try {
             httpResponseValidator.validateResponse(response);
 
             if (cls != null) {
-                return httpResponseValidator.isNotFound(response) ? null : objectFromResponse(cls, response);
+                return httpResponseValidator.isNotFound(response) ? null : objectFromResponse(cls, response, trace);
             } else {
                 return null;
             }
         } finally {
             EntityUtils.consume(response.getEntity());
-            releaseConnection(request);
+            releaseConnection(request, trace);
         }
     }
 
@@ -235,18 +590,14 @@ public class JenkinsHttpClient {
    */
   public String executeScript(String script) throws IOException {
     HttpPost request = new HttpPost(correctPath("/scriptText"));
-    Crumb crumb = get("/crumbIssuer", Crumb.class);
-    if (crumb != null) {
-      request.addHeader(new BasicHeader(crumb.getCrumbRequestField(), crumb.getCrumb()));
-    }
-
     if (script != null) {
       List<NameValuePair> nameValuePairs = new ArrayList<NameValuePair>(2);
       nameValuePairs.add(new BasicNameValuePair("script", script));
       request.setEntity(new UrlEncodedFormEntity(nameValuePairs));
     }
 
-      HttpResponse response = client.execute(request, localContext);
+    RequestTrace trace = newTrace(request);
+    HttpResponse response = executeWithCrumb(request, trace);
     try {
       httpResponseValidator.validateResponse(response);
       if (!httpResponseValidator.isNotFound(response)) {
@@ -261,7 +612,7 @@ public class JenkinsHttpClient {
       }
     } finally {
       EntityUtils.consume(response.getEntity());
-      releaseConnection(request);
+      releaseConnection(request, trace);
     }
   }
 
@@ -276,32 +627,22 @@ public class JenkinsHttpClient {
      */
     public String post_xml(String path, String xml_data) throws IOException {
         HttpPost request = new HttpPost(correctPath(path));
-        Crumb crumb = get("/crumbIssuer", Crumb.class);
-        if (crumb != null) {
-            request.addHeader(new BasicHeader(crumb.getCrumbRequestField(), crumb.getCrumb()));
-        }
-
         if (xml_data != null) {
             request.setEntity(new StringEntity(xml_data, ContentType.APPLICATION_XML));
         }
-        HttpResponse response = client.execute(request, localContext);
+        RequestTrace trace = newTrace(request);
+        HttpResponse response = executeWithCrumb(request, trace);
 
         try {
             httpResponseValidator.validateResponse(response);
             if (!httpResponseValidator.isNotFound(response)) {
-              InputStream content = response.getEntity().getContent();
-              Scanner s = new Scanner(content);
-              StringBuffer sb = new StringBuffer();
-              while (s.hasNext()) {
-                sb.append(s.next());
-              }
-              return sb.toString();
+              return EntityUtils.toString(response.getEntity(), Consts.UTF_8);
             } else {
               return null;
             }
         } finally {
             EntityUtils.consume(response.getEntity());
-            releaseConnection(request);
+            releaseConnection(request, trace);
         }
     }
 
@@ -316,31 +657,21 @@ public class JenkinsHttpClient {
   public String post_json(String path, List<NameValuePair> parameters) throws IOException {
     HttpPost request = new HttpPost(postApi(path));
     request.setEntity(new UrlEncodedFormEntity(parameters));
+    RequestTrace trace = newTrace(request);
     HttpResponse response = null;
-
-    Crumb crumb = get("/crumbIssuer", Crumb.class);
-    if (crumb != null) {
-        request.addHeader(new BasicHeader(crumb.getCrumbRequestField(), crumb.getCrumb()));
-    }
     try {
-      response = client.execute(request, localContext);
+      response = executeWithCrumb(request, trace);
       int status = response.getStatusLine().getStatusCode();
       if (status < 200 || status >= 400) {
         throw new HttpResponseException(status, response.getStatusLine().getReasonPhrase());
       }
 
-      InputStream content = response.getEntity().getContent();
-      Scanner s = new Scanner(content);
-      StringBuilder sb = new StringBuilder();
-      while (s.hasNext()) {
-        sb.append(s.next());
-      }
-      return sb.toString();
+      return EntityUtils.toString(response.getEntity(), Consts.UTF_8);
     } finally {
       if (response != null) {
         EntityUtils.consume(response.getEntity());
       }
-      releaseConnection(request);
+      releaseConnection(request, trace);
     }
   }
 
@@ -354,7 +685,29 @@ public class JenkinsHttpClient {
         post(path, null, null);
     }
 
-    private String urlJoin(String path1, String path2) {
+    /**
+     * Perform a POST request that takes no parameters and return the Location header of the response, ex. the
+     * queue item of a triggered build
+     *
+     * @param path path to request
+     * @return the Location header, null if the response has none
+     * @throws IOException
+     */
+    public String postForLocation(String path) throws IOException {
+        HttpPost request = new HttpPost(jsonApi(path));
+        RequestTrace trace = newTrace(request);
+        HttpResponse response = executeWithCrumb(request, trace);
+        try {
+            httpResponseValidator.validateResponse(response);
+            Header location = response.getFirstHeader("Location");
+            return location == null ? null : location.getValue();
+        } finally {
+            EntityUtils.consume(response.getEntity());
+            releaseConnection(request, trace);
+        }
+    }
+
+    String urlJoin(String path1, String path2) {
         if (!path1.endsWith("/")) {
             path1 += "/";
         }
@@ -364,7 +717,7 @@ public class JenkinsHttpClient {
         return path1 + path2;
     }
 
-    private URI jsonApi(String path) {
+    URI jsonApi(String path) {
         if (!path.toLowerCase().matches("https?://.*")) {
             path = urlJoin(this.context, path);
         }
@@ -381,27 +734,386 @@ public class JenkinsHttpClient {
       return uri.resolve("/").resolve(correctPath(path));
     }
 
-    private URI correctPath(String path) {
+    URI correctPath(String path) {
       if (!path.toLowerCase().matches("https?://.*")) {
         path = urlJoin(this.context, path);
       }
       return uri.resolve("/").resolve(path);
     }
 
-    private <T extends BaseModel> T objectFromResponse(Class<T> cls, HttpResponse response) throws IOException {
+    private <T extends BaseModel> T objectFromResponse(Class<T> cls, HttpResponse response, RequestTrace trace)
+            throws IOException {
+        return objectFromResponse(cls, response, response.getEntity().getContent(), trace);
+    }
+
+    private <T extends BaseModel> T objectFromResponse(Class<T> cls, HttpResponse response, InputStream content,
+                                                       RequestTrace trace) throws IOException {
         T result;
-        InputStream content = response.getEntity().getContent();
+        long started = System.nanoTime();
         if (response.getFirstHeader("Content-Type").getValue().contains("application/xml")) {
-          result = Utils.getXmlMapper().readValue(content, cls);
+          result = Utils.getXmlReader(cls).readValue(content);
         } else {
-          result = Utils.getJsonMapper().readValue(content, cls);
+          result = Utils.getJsonReader(cls).readValue(content);
         }
+        trace.parsed(System.nanoTime() - started);
         result.setClient(this);
         return result;
     }
 
-  private void releaseConnection(HttpRequestBase httpRequestBase) {
+    /**
+     * Execute a POST request carrying the cached crumb. The crumb is fetched once per client; if the server
+     * rejects the request with a 403 the crumb is refreshed and the request is sent once more.
+     */
+    private HttpResponse executeWithCrumb(HttpPost request, RequestTrace trace) throws IOException {
+        long started = System.nanoTime();
+        Crumb current = getCrumb();
+        setCrumbHeader(request, current);
+        long sent = System.nanoTime();
+        trace.crumbed(sent - started);
+        HttpResponse response = execute(request, trace);
+        if (response.getStatusLine().getStatusCode() != 403) {
+            return response;
+        }
+
+        // keep the rejection around (it is small) and free the connection before asking for a new crumb
+        if (response.getEntity() != null) {
+            response.setEntity(new BufferedHttpEntity(response.getEntity()));
+        }
+        request.releaseConnection();
+        // fetching the crumb is a request of its own, it must not wait for the permit and slot of this one
+        trace.releasePermit();
+        Crumb refreshed = refreshCrumb(current);
+        if (sameCrumb(current, refreshed)) {
+            // the crumb was not the problem
+            return response;
+        }
+        setCrumbHeader(request, refreshed);
+        trace.crumbed(System.nanoTime() - sent);
+        return execute(request, trace);
+    }
+
+    private Crumb getCrumb() throws IOException {
+        if (!crumbLoaded) {
+            synchronized (crumbLock) {
+                if (!crumbLoaded) {
+                    crumb = get("/crumbIssuer", Crumb.class);
+                    crumbLoaded = true;
+                }
+            }
+        }
+        return crumb;
+    }
+
+    private Crumb refreshCrumb(Crumb stale) throws IOException {
+        synchronized (crumbLock) {
+            if (crumbLoaded && sameCrumb(crumb, stale)) {
+                crumb = get("/crumbIssuer", Crumb.class);
+            }
+            crumbLoaded = true;
+            return crumb;
+        }
+    }
+
+    private static boolean sameCrumb(Crumb first, Crumb second) {
+        if (first == null || second == null) {
+            return first == second;
+        }
+        return StringUtils.equals(first.getCrumbRequestField(), second.getCrumbRequestField())
+                && StringUtils.equals(first.getCrumb(), second.getCrumb());
+    }
+
+    private static void setCrumbHeader(HttpPost request, Crumb crumb) {
+        if (crumb != null) {
+            request.setHeader(new BasicHeader(crumb.getCrumbRequestField(), crumb.getCrumb()));
+        }
+    }
+
+    /**
+     * Execute a request, every request of this client goes through here
+     */
+    private HttpResponse execute(HttpRequestBase request, RequestTrace trace) throws IOException {
+        RetryPolicy retry = retryPolicy;
+        CircuitBreaker breaker = circuitBreaker;
+        AdaptiveLimiter limiter = concurrencyLimiter;
+        RequestScheduler scheduler = requestScheduler;
+        RateLimiter rate = rateLimiter;
+        boolean retryable = retry != null && retry.isIdempotent(request.getMethod());
+        for (int attempt = 1; ; attempt++) {
+            long delay;
+            boolean trial = false;
+            boolean reported = false;
+            // a request executed again, ex. with a new crumb, takes a new permit and slot
+            trace.releasePermit();
+            try {
+                if (breaker != null) {
+                    trial = breaker.acquire();
+                }
+                if (rate != null) {
+                    // waits without holding a slot of the scheduler or limiter
+                    rate.acquire(request.getMethod(), request.getURI().getRawPath());
+                }
+                if (scheduler != null) {
+                    RequestScheduler.Priority priority = RequestScheduler.currentPriority();
+                    scheduler.acquire(priority);
+                    trace.scheduled(scheduler, priority);
+                }
+                if (limiter != null) {
+                    limiter.acquire();
+                    trace.limited(limiter);
+                }
+                long sent = System.nanoTime();
+                trace.sent();
+                HttpResponse response = client.execute(request, newContext());
+                int status = response.getStatusLine().getStatusCode();
+                if (limiter != null) {
+                    limiter.onResponse(trace.endpoint(), System.nanoTime() - sent, status);
+                }
+                if (breaker != null) {
+                    if (CircuitBreaker.isOutage(status)) {
+                        breaker.failure();
+                    } else {
+                        breaker.success();
+                    }
+                    reported = true;
+                }
+                if (!retryable || attempt >= retry.getMaxAttempts() || !RetryPolicy.isRetryable(status)) {
+                    trace.responseReceived(response);
+                    return response;
+                }
+                delay = retry.getDelayMillis(attempt, response.getFirstHeader("Retry-After"));
+                EntityUtils.consume(response.getEntity());
+            } catch (CircuitBreakerOpenException e) {
+                trace.failed(e);
+                throw e;
+            } catch (IOException e) {
+                boolean interrupted = isInterrupt(e);
+                if (!interrupted) {
+                    if (breaker != null) {
+                        breaker.failure();
+                        reported = true;
+                    }
+                    if (trace.isLimited()) {
+                        limiter.onFailure();
+                    }
+                }
+                if (!retryable || attempt >= retry.getMaxAttempts() || interrupted) {
+                    trace.failed(e);
+                    throw e;
+                }
+                delay = retry.getDelayMillis(attempt, null);
+            } catch (RuntimeException e) {
+                trace.failed(e);
+                throw e;
+            } finally {
+                if (trial && !reported) {
+                    // a trial which did not tell whether the server is up must not leave the breaker half open
+                    breaker.failure();
+                }
+            }
+            request.releaseConnection();
+            trace.releasePermit();
+            try {
+                retry.backoff(delay);
+            } catch (InterruptedIOException e) {
+                trace.failed(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @return whether the request failed because its thread was interrupted, rather than because of the server
+     */
+    private static boolean isInterrupt(IOException e) {
+        if (e instanceof SocketTimeoutException || e instanceof ConnectTimeoutException) {
+            // timeouts are InterruptedIOExceptions too
+            return Thread.currentThread().isInterrupted();
+        }
+        return e instanceof InterruptedIOException;
+    }
+
+    private RequestTrace newTrace(HttpRequestBase request) {
+        return new RequestTrace(requestListener, request, context);
+    }
+
+  private void releaseConnection(HttpRequestBase httpRequestBase, RequestTrace trace) {
         httpRequestBase.releaseConnection();
+        trace.complete();
+    }
+
+    /**
+     * Retry idempotent requests failing because the server is unavailable
+     *
+     * @param retryPolicy when to retry, null to never retry
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Fail at once instead of sending requests while the server looks down
+     *
+     * @param circuitBreaker the breaker of this server, null to always send requests
+     */
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Adapt the number of requests sent concurrently to how fast the server answers. A request counts as in
+     * flight until its response is released, ex. while a listing is being streamed to a {@link ModelVisitor}.
+     *
+     * @param concurrencyLimiter the limiter of this server, null to send requests without limit
+     */
+    public void setConcurrencyLimiter(AdaptiveLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        RequestScheduler scheduler = requestScheduler;
+        if (scheduler != null) {
+            scheduler.setLimiter(concurrencyLimiter);
+        }
+    }
+
+    public AdaptiveLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Send requests by priority, so that interactive calls go ahead of bulk traffic, ex. a crawl, sharing this
+     * client. The priority of a request is the one of its thread, see
+     * {@link RequestScheduler#withPriority(RequestScheduler.Priority, RequestScheduler.Task)}.
+     *
+     * @param requestScheduler the scheduler of this client, not shared with other clients, null to send requests
+     *            in the order they come
+     */
+    public void setRequestScheduler(RequestScheduler requestScheduler) {
+        if (requestScheduler != null) {
+            requestScheduler.setLimiter(concurrencyLimiter);
+        }
+        this.requestScheduler = requestScheduler;
+    }
+
+    public RequestScheduler getRequestScheduler() {
+        return requestScheduler;
+    }
+
+    /**
+     * Keep the requests of this client under a rate, see {@link RateLimiter}
+     *
+     * @param rateLimiter the rate limiter of this server, null to send requests without delay
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Report every request made by this client to the given listener, ex. a
+     * {@link com.offbytwo.jenkins.client.metrics.HistogramRecorder}
+     *
+     * @param requestListener listener to notify, null to stop reporting
+     */
+    public void setRequestListener(RequestListener requestListener) {
+        this.requestListener = requestListener;
+    }
+
+    public RequestListener getRequestListener() {
+        return requestListener;
+    }
+
+    /**
+     * Keep the responses of {@link #get(String, Class)} and {@link #getXml(String, Class)} so that unchanged
+     * responses return the previously parsed model instead of being parsed again
+     *
+     * @param responseCache cache to use, null to disable caching
+     */
+    public void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Reuse the builds and jobs already fetched by {@link #get(String, Class)}, see {@link DomainCache}
+     *
+     * @param domainCache cache to use, null to disable caching
+     */
+    public void setDomainCache(DomainCache domainCache) {
+        this.domainCache = domainCache;
+    }
+
+    public DomainCache getDomainCache() {
+        return domainCache;
+    }
+
+    /**
+     * Let concurrent identical GET requests share one call to the server: a request for a URL, projection
+     * included, that is already being requested by another thread waits for that request and returns the same
+     * result (the same model instance, which must not be modified)
+     *
+     * @param coalesceRequests whether identical requests in flight are coalesced
+     */
+    public void setCoalesceRequests(boolean coalesceRequests) {
+        this.coalesceRequests = coalesceRequests;
+    }
+
+    public boolean isCoalesceRequests() {
+        return coalesceRequests;
+    }
+
+    /**
+     * @return number of requests answered by an identical request in flight
+     */
+    public long getCoalescedRequests() {
+        return singleFlight.getCoalesced();
+    }
+
+    /**
+     * Each request gets its own context so that concurrent executions do not share auth and connection state;
+     * the preemptive auth scheme is inherited from the client wide context.
+     */
+    private HttpContext newContext() {
+        return localContext == null ? null : new BasicHttpContext(localContext);
+    }
+
+    /**
+     * Shut down the underlying connection manager, closing all pooled connections
+     */
+    @Override
+    public void close() {
+        if (idleConnectionMonitor != null) {
+            idleConnectionMonitor.shutdown();
+        }
+        client.getConnectionManager().shutdown();
+    }
+
+    private static DefaultHttpClient createPooledHttpClient(ConnectionPoolSettings poolSettings) {
+        PoolingClientConnectionManager connectionManager = new PoolingClientConnectionManager();
+        connectionManager.setMaxTotal(poolSettings.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(poolSettings.getMaxPerRoute());
+
+        DefaultHttpClient httpClient = new DefaultHttpClient(connectionManager);
+        final long keepAliveMillis = poolSettings.getKeepAliveMillis();
+        httpClient.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                long duration = super.getKeepAliveDuration(response, context);
+                return duration > 0 ? duration : keepAliveMillis;
+            }
+        });
+        return httpClient;
     }
 
 }
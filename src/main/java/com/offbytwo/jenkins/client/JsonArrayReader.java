@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.offbytwo.jenkins.tools.Utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the elements of one array field of a JSON object straight from a stream, without building the enclosing
+ * object or keeping previous elements around. Null elements are skipped.
+ */
+final class JsonArrayReader {
+
+    private JsonArrayReader() {
+    }
+
+    /**
+     * @param content JSON object to read
+     * @param field name of the top level array field
+     * @param cls class of the array elements
+     * @param visitor receives each element
+     * @return false if the visitor stopped the reading, true otherwise
+     * @throws IOException
+     */
+    static <T> boolean read(InputStream content, String field, Class<T> cls, ModelVisitor<? super T> visitor)
+            throws IOException {
+        JsonParser parser = Utils.getJsonMapper().getFactory().createParser(content);
+        // the caller decides whether the rest of the stream is drained or dropped
+        parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        try {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return true;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (field.equals(name) && value == JsonToken.START_ARRAY) {
+                    ObjectReader reader = Utils.getJsonReader(cls);
+                    for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY;
+                         token = parser.nextToken()) {
+                        if (token == JsonToken.VALUE_NULL) {
+                            continue;
+                        }
+                        if (token != JsonToken.START_OBJECT) {
+                            throw new JsonParseException("Expected an object in " + field + ", found " + token,
+                                    parser.getCurrentLocation());
+                        }
+                        T element = reader.readValue(parser);
+                        if (!visitor.visit(element)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+                parser.skipChildren();
+            }
+            return true;
+        } finally {
+            parser.close();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import java.io.IOException;
+
+/**
+ * Receives the elements of a JSON array one at a time while the response is being read
+ *
+ * @param <T> type of the elements
+ */
+public interface ModelVisitor<T> {
+
+    /**
+     * @param element the element just read
+     * @return true to continue reading, false to stop and drop the rest of the response
+     * @throws IOException
+     */
+    boolean visit(T element) throws IOException;
+}
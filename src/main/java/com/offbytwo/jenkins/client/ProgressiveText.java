@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+/**
+ * Outcome of reading a progressive text resource, ex. a console log, from an offset
+ */
+public class ProgressiveText {
+    private final long nextStart;
+    private final boolean moreData;
+    private final long bytesRead;
+
+    public ProgressiveText(long nextStart, boolean moreData, long bytesRead) {
+        this.nextStart = nextStart;
+        this.moreData = moreData;
+        this.bytesRead = bytesRead;
+    }
+
+    /**
+     * @return offset to read from next time, as told by {@code X-Text-Size}
+     */
+    public long getNextStart() {
+        return nextStart;
+    }
+
+    /**
+     * @return whether the text is still growing, as told by {@code X-More-Data}
+     */
+    public boolean hasMoreData() {
+        return moreData;
+    }
+
+    /**
+     * @return number of bytes read by this request
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.offbytwo.jenkins.model.BaseModel;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.apache.commons.lang.StringUtils.join;
+
+/**
+ * Restricts the JSON returned by the remote API using the Jenkins {@code tree} and {@code depth} query parameters,
+ * ex. {@code Projection.of("lastBuild[number,result]")}.
+ */
+public final class Projection {
+    // fields without a model class, ex. the actions of a build, are requested with all their properties
+    // down to a few levels, a bare field would only return the class of its objects
+    private static final String UNTYPED = "[*[*[*]]]";
+
+    private final String tree;
+    private final Integer depth;
+
+    private Projection(String tree, Integer depth) {
+        this.tree = tree;
+        this.depth = depth;
+    }
+
+    /**
+     * @param tree the tree expression, ex. {@code name,builds[number,url]{0,10}}
+     * @return a projection returning only the given tree
+     */
+    public static Projection of(String tree) {
+        return new Projection(tree, null);
+    }
+
+    /**
+     * Build the tree expression matching the fields of a model class. Fields holding other models (or lists of
+     * models) are expanded with their own fields, so a slimmed down model class only fetches what it can hold; a
+     * model holding itself is expanded one level deep. Untyped fields (raw lists, maps) are requested with all
+     * their properties, three levels deep.
+     *
+     * @param cls the model class to project on
+     * @return a projection returning the fields of the given class
+     */
+    public static Projection forClass(Class<? extends BaseModel> cls) {
+        return new Projection(treeOf(cls, new HashSet<Class<?>>()), null);
+    }
+
+    /**
+     * @return a copy of this projection also asking for the given depth
+     */
+    public Projection withDepth(int depth) {
+        return new Projection(tree, depth);
+    }
+
+    public String getTree() {
+        return tree;
+    }
+
+    public Integer getDepth() {
+        return depth;
+    }
+
+    /**
+     * @param path path of the request, may already contain a query string
+     * @return the path with the projection appended to its query string
+     */
+    public String appendTo(String path) {
+        String query = toQueryString();
+        if (query.isEmpty()) {
+            return path;
+        }
+        return path + (path.contains("?") ? "&" : "?") + query;
+    }
+
+    /**
+     * @return the query string parameters for this projection, without leading {@code ?}
+     */
+    public String toQueryString() {
+        List<String> parameters = new ArrayList<String>(2);
+        if (tree != null) {
+            parameters.add("tree=" + encode(tree));
+        }
+        if (depth != null) {
+            parameters.add("depth=" + depth);
+        }
+        return join(parameters, "&");
+    }
+
+    @Override
+    public String toString() {
+        return toQueryString();
+    }
+
+    private static String treeOf(Class<?> cls, Set<Class<?>> visiting) {
+        visiting.add(cls);
+        List<String> fields = new ArrayList<String>();
+        Set<String> names = new HashSet<String>();
+        for (Class<?> current = cls; current != null && current != BaseModel.class && current != Object.class;
+             current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()
+                        || !names.add(field.getName())) {
+                    continue;
+                }
+                String name = nameOf(field);
+                Class<?> nested = modelType(field);
+                if (nested == null) {
+                    fields.add(isPlain(field) ? name : name + UNTYPED);
+                } else if (!visiting.contains(nested)) {
+                    fields.add(name + "[" + treeOf(nested, visiting) + "]");
+                } else {
+                    // a model holding itself, ex. nested folders: its own plain fields only
+                    String values = plainFieldsOf(nested);
+                    if (!values.isEmpty()) {
+                        fields.add(name + "[" + values + "]");
+                    }
+                }
+            }
+        }
+        visiting.remove(cls);
+        return join(fields, ",");
+    }
+
+    private static String plainFieldsOf(Class<?> cls) {
+        List<String> fields = new ArrayList<String>();
+        Set<String> names = new HashSet<String>();
+        for (Class<?> current = cls; current != null && current != BaseModel.class && current != Object.class;
+             current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()
+                        && isPlain(field) && names.add(field.getName())) {
+                    fields.add(nameOf(field));
+                }
+            }
+        }
+        return join(fields, ",");
+    }
+
+    /**
+     * @return the name of the field in the response, ex. {@code _class}
+     */
+    private static String nameOf(Field field) {
+        JsonProperty property = field.getAnnotation(JsonProperty.class);
+        return property != null && !property.value().isEmpty() ? property.value() : field.getName();
+    }
+
+    /**
+     * @return the model class held by the field, directly or as list element, null for other values
+     */
+    private static Class<?> modelType(Field field) {
+        Class<?> type = elementType(field);
+        return type != null && BaseModel.class.isAssignableFrom(type) ? type : null;
+    }
+
+    /**
+     * @return whether the field holds values without properties, ex. strings, numbers or lists of them
+     */
+    private static boolean isPlain(Field field) {
+        Class<?> type = elementType(field);
+        return type != null && (type.isPrimitive() || type.isEnum() || Number.class.isAssignableFrom(type)
+                || type == String.class || type == Boolean.class || type == Character.class);
+    }
+
+    /**
+     * @return the type of the field, or of its elements for a list, null for an untyped list
+     */
+    private static Class<?> elementType(Field field) {
+        Class<?> type = field.getType();
+        if (!List.class.isAssignableFrom(type)) {
+            return type;
+        }
+        Type generic = field.getGenericType();
+        if (!(generic instanceof ParameterizedType)) {
+            return null;
+        }
+        Type element = ((ParameterizedType) generic).getActualTypeArguments()[0];
+        return element instanceof Class ? (Class<?>) element : null;
+    }
+
+    private static String encode(String value) {
+        try {
+            // jenkins doesn't like the + for space, use %20 instead
+            return URLEncoder.encode(value, "UTF-8").replaceAll("\\+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Keep the requests a {@link JenkinsHttpClient} sends under a rate, ex. the API quota of a service account.
+ *
+ * Requests take a token from a bucket refilled at {@code permitsPerSecond}, holding at most {@code burst}
+ * tokens; a request finding the bucket empty waits for its token instead of failing, which smooths the bursts of
+ * bulk operations. Besides the bucket of the server, each {@link EndpointClass} can have its own bucket, ex. to
+ * allow fewer writes than reads. Every attempt of a retried request takes a token.
+ *
+ * Tokens are reserved without locking, and the time spent waiting for them is kept per class.
+ */
+public class RateLimiter {
+
+    public enum EndpointClass {
+        /** GET and HEAD requests */
+        READ,
+        /** other requests, ex. updating or creating jobs */
+        WRITE,
+        /** Groovy scripts run with {@code scriptText} */
+        SCRIPT;
+
+        /**
+         * @param method HTTP method of a request
+         * @param path path of the request
+         * @return the class of the request
+         */
+        public static EndpointClass of(String method, String path) {
+            if ("GET".equals(method) || "HEAD".equals(method)) {
+                return READ;
+            }
+            if (path != null && (path.endsWith("/scriptText") || path.endsWith("/script"))) {
+                return SCRIPT;
+            }
+            return WRITE;
+        }
+    }
+
+    private static final EndpointClass[] CLASSES = EndpointClass.values();
+
+    private final Bucket server;
+    private final AtomicReferenceArray<Bucket> buckets = new AtomicReferenceArray<Bucket>(CLASSES.length);
+    private final AtomicLong[] throttled = new AtomicLong[CLASSES.length];
+    private final AtomicLong[] waitNanos = new AtomicLong[CLASSES.length];
+
+    /**
+     * @param permitsPerSecond requests allowed per second to the server
+     * @param burst requests allowed at once after being idle, at least 1
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        this.server = new Bucket(permitsPerSecond, burst);
+        for (int i = 0; i < CLASSES.length; i++) {
+            throttled[i] = new AtomicLong();
+            waitNanos[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * Limit the requests of a class on top of the limit of the server
+     *
+     * @param endpointClass class of requests
+     * @param permitsPerSecond requests of the class allowed per second
+     * @param burst requests of the class allowed at once after being idle, at least 1
+     */
+    public void setLimit(EndpointClass endpointClass, double permitsPerSecond, int burst) {
+        buckets.set(endpointClass.ordinal(), new Bucket(permitsPerSecond, burst));
+    }
+
+    /**
+     * @param endpointClass class of requests
+     */
+    public void removeLimit(EndpointClass endpointClass) {
+        buckets.set(endpointClass.ordinal(), null);
+    }
+
+    /**
+     * @return number of requests of the class which had to wait for a token
+     */
+    public long getThrottled(EndpointClass endpointClass) {
+        return throttled[endpointClass.ordinal()].get();
+    }
+
+    /**
+     * @return total time requests of the class waited for a token
+     */
+    public long getWaitNanos(EndpointClass endpointClass) {
+        return waitNanos[endpointClass.ordinal()].get();
+    }
+
+    /**
+     * @return total time requests waited for a token
+     */
+    public long getWaitNanos() {
+        long total = 0;
+        for (AtomicLong nanos : waitNanos) {
+            total += nanos.get();
+        }
+        return total;
+    }
+
+    /**
+     * Wait for the tokens of a request
+     *
+     * @return the time waited, in nanoseconds
+     * @throws InterruptedIOException
+     */
+    long acquire(String method, String path) throws InterruptedIOException {
+        EndpointClass endpointClass = EndpointClass.of(method, path);
+        long now = System.nanoTime();
+        long wait = server.reserve(now);
+        Bucket bucket = buckets.get(endpointClass.ordinal());
+        if (bucket != null) {
+            wait = Math.max(wait, bucket.reserve(now));
+        }
+        if (wait <= 0) {
+            return 0;
+        }
+        throttled[endpointClass.ordinal()].incrementAndGet();
+        waitNanos[endpointClass.ordinal()].addAndGet(wait);
+        long deadline = now + wait;
+        for (long left = wait; left > 0; left = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(this, left);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the rate limit");
+            }
+        }
+        return wait;
+    }
+
+    /**
+     * A token bucket kept as the time at which it will be full again (the theoretical arrival time of the generic
+     * cell rate algorithm), so that taking a token is a single compare and set
+     */
+    private static final class Bucket {
+        private final long intervalNanos;
+        private final long toleranceNanos;
+        private final AtomicLong fullAt = new AtomicLong(Long.MIN_VALUE);
+
+        Bucket(double permitsPerSecond, int burst) {
+            if (permitsPerSecond <= 0 || burst < 1) {
+                throw new IllegalArgumentException("Rate and burst must be positive");
+            }
+            this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+            this.toleranceNanos = intervalNanos * (burst - 1);
+        }
+
+        /**
+         * Take a token, possibly one which is not there yet
+         *
+         * @return how long to wait for the token
+         */
+        long reserve(long now) {
+            while (true) {
+                long current = fullAt.get();
+                long start = current == Long.MIN_VALUE || current - now < 0 ? now : current;
+                if (fullAt.compareAndSet(current, start + intervalNanos)) {
+                    return start - toleranceNanos - now;
+                }
+            }
+        }
+    }
+}
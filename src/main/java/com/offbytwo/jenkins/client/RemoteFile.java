@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+/**
+ * What a HEAD request tells about a file served by Jenkins, ex. an artifact
+ */
+public class RemoteFile {
+    private final long length;
+    private final boolean acceptRanges;
+    private final String etag;
+    private final String lastModified;
+
+    public RemoteFile(long length, boolean acceptRanges, String etag, String lastModified) {
+        this.length = length;
+        this.acceptRanges = acceptRanges;
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * @return size in bytes, -1 if unknown
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * @return whether the server answers range requests for this file
+     */
+    public boolean isAcceptRanges() {
+        return acceptRanges;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return the value of an {@code If-Range} header asking for this version of the file, null if it has neither
+     * a strong ETag nor a modification date
+     */
+    public String getRangeValidator() {
+        // weak ETags cannot validate a range
+        return etag != null && !etag.startsWith("W/") ? etag : lastModified;
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Share the requests a {@link JenkinsHttpClient} sends at the same time between priority classes, so that
+ * interactive calls are not stuck behind a bulk crawl.
+ *
+ * Each request belongs to the {@link Priority} set on its thread with {@link #withPriority(Priority, Task)},
+ * {@link Priority#NORMAL} by default. When a request completes, the freed slot goes to the waiting class which
+ * received the least service relative to its weight (weighted fair queuing), within the cap of each class.
+ *
+ * The total number of requests in flight is bounded by the capacity of the scheduler, and by the limit of the
+ * {@link AdaptiveLimiter} of the client if it has one.
+ */
+public class RequestScheduler {
+
+    public enum Priority {
+        INTERACTIVE(8), NORMAL(4), BULK(1);
+
+        private final int weight;
+
+        Priority(int weight) {
+            this.weight = weight;
+        }
+
+        /**
+         * @return share of the capacity given to this class when all classes are waiting
+         */
+        public int getWeight() {
+            return weight;
+        }
+    }
+
+    /**
+     * Requests to send with a priority
+     */
+    public interface Task<T> {
+        T run() throws IOException;
+    }
+
+    private static final ThreadLocal<Priority> CURRENT = new ThreadLocal<Priority>();
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final int capacity;
+    private final int[] caps = new int[PRIORITIES.length];
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock
+    private final int[] inFlight = new int[PRIORITIES.length];
+    private final long[] granted = new long[PRIORITIES.length];
+    private final double[] virtualTime = new double[PRIORITIES.length];
+    private final List<ArrayDeque<Waiter>> queues = new ArrayList<ArrayDeque<Waiter>>(PRIORITIES.length);
+    private double systemVirtualTime;
+    private int total;
+    private volatile AdaptiveLimiter limiter;
+
+    /**
+     * @param capacity maximum number of requests in flight, ex. the size of the connection pool
+     */
+    public RequestScheduler(int capacity) {
+        this.capacity = capacity;
+        for (Priority priority : PRIORITIES) {
+            caps[priority.ordinal()] = capacity;
+            queues.add(new ArrayDeque<Waiter>());
+        }
+    }
+
+    /**
+     * Send the requests of the task with the given priority
+     *
+     * @param priority priority of the requests sent by the current thread while the task runs
+     * @param task the requests to send
+     * @param <T> type of the result
+     * @return the result of the task
+     * @throws IOException
+     */
+    public static <T> T withPriority(Priority priority, Task<T> task) throws IOException {
+        Priority previous = CURRENT.get();
+        CURRENT.set(priority);
+        try {
+            return task.run();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * @return priority of the requests sent by the current thread
+     */
+    public static Priority currentPriority() {
+        Priority priority = CURRENT.get();
+        return priority == null ? Priority.NORMAL : priority;
+    }
+
+    /**
+     * @param priority a priority class
+     * @param maxInFlight maximum number of requests of the class in flight at the same time
+     */
+    public void setMaxInFlight(Priority priority, int maxInFlight) {
+        lock.lock();
+        try {
+            caps[priority.ordinal()] = maxInFlight;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxInFlight(Priority priority) {
+        lock.lock();
+        try {
+            return caps[priority.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight(Priority priority) {
+        lock.lock();
+        try {
+            return inFlight[priority.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueDepth(Priority priority) {
+        lock.lock();
+        try {
+            return queues.get(priority.ordinal()).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of requests of the class sent so far
+     */
+    public long getGranted(Priority priority) {
+        lock.lock();
+        try {
+            return granted[priority.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void setLimiter(AdaptiveLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    /**
+     * Wait until a request of the given class can be sent
+     *
+     * @throws InterruptedIOException
+     */
+    void acquire(Priority priority) throws InterruptedIOException {
+        int index = priority.ordinal();
+        lock.lock();
+        try {
+            if (queues.get(index).isEmpty() && isEmpty() && canSend(index)) {
+                grant(index);
+                return;
+            }
+            Waiter waiter = new Waiter(lock.newCondition());
+            queues.get(index).add(waiter);
+            dispatch();
+            try {
+                while (!waiter.granted) {
+                    waiter.condition.await();
+                }
+            } catch (InterruptedException e) {
+                if (waiter.granted) {
+                    // too late to give up the slot, the request goes on
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                queues.get(index).remove(waiter);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to send a request");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called once a request sent after {@link #acquire(Priority)} is over
+     */
+    void release(Priority priority) {
+        lock.lock();
+        try {
+            inFlight[priority.ordinal()]--;
+            total--;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatch() {
+        while (true) {
+            int next = -1;
+            for (int i = 0; i < PRIORITIES.length; i++) {
+                if (!queues.get(i).isEmpty() && canSend(i) && (next < 0 || virtualTime[i] < virtualTime[next])) {
+                    next = i;
+                }
+            }
+            if (next < 0) {
+                return;
+            }
+            Waiter waiter = queues.get(next).poll();
+            grant(next);
+            waiter.granted = true;
+            waiter.condition.signal();
+        }
+    }
+
+    private boolean canSend(int index) {
+        AdaptiveLimiter current = limiter;
+        int limit = current == null ? capacity : Math.min(capacity, current.getLimit());
+        return total < limit && inFlight[index] < caps[index];
+    }
+
+    private boolean isEmpty() {
+        for (ArrayDeque<Waiter> queue : queues) {
+            if (!queue.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void grant(int index) {
+        // a class coming back from idle starts from the current virtual time instead of its old credit
+        double start = Math.max(virtualTime[index], systemVirtualTime);
+        virtualTime[index] = start + 1.0 / PRIORITIES[index].weight;
+        systemVirtualTime = start;
+        inFlight[index]++;
+        granted[index]++;
+        total++;
+    }
+
+    private static class Waiter {
+        final Condition condition;
+        boolean granted;
+
+        Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+}
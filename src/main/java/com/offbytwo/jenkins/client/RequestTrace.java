@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import com.offbytwo.jenkins.client.metrics.EndpointTemplates;
+import com.offbytwo.jenkins.client.metrics.RequestEvent;
+import com.offbytwo.jenkins.client.metrics.RequestListener;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+
+/**
+ * Timings of one request, reported to the {@link RequestListener} when the request is released or fails. Only
+ * used by the thread executing the request.
+ */
+final class RequestTrace {
+    private final RequestListener listener;
+    private final HttpRequestBase request;
+    private final String context;
+    private final long created = System.nanoTime();
+    private long sent = -1;
+    private long firstByte = -1;
+    private long parseNanos;
+    private long crumbNanos;
+    private long bytesRead;
+    private int status;
+    private Throwable failure;
+    private boolean completed;
+    private AdaptiveLimiter permit;
+    private RequestScheduler scheduler;
+    private RequestScheduler.Priority priority;
+
+    RequestTrace(RequestListener listener, HttpRequestBase request, String context) {
+        this.listener = listener;
+        this.request = request;
+        this.context = context;
+    }
+
+    /**
+     * The request is sent now, times are measured from the last attempt
+     */
+    void sent() {
+        sent = System.nanoTime();
+        firstByte = -1;
+    }
+
+    void responseReceived(HttpResponse response) {
+        firstByte = System.nanoTime();
+        status = response.getStatusLine().getStatusCode();
+        if (listener != null && response.getEntity() != null) {
+            response.setEntity(new CountingEntity(response.getEntity(), this));
+        }
+    }
+
+    void bytesRead(long count) {
+        bytesRead += count;
+    }
+
+    void parsed(long nanos) {
+        parseNanos += nanos;
+    }
+
+    void crumbed(long nanos) {
+        crumbNanos += nanos;
+    }
+
+    void failed(Throwable failure) {
+        this.failure = failure;
+        complete();
+    }
+
+    /**
+     * The request holds a permit of the limiter until it completes
+     */
+    void limited(AdaptiveLimiter limiter) {
+        if (permit != null) {
+            permit.release();
+        }
+        permit = limiter;
+    }
+
+    /**
+     * The request holds a slot of the scheduler until it completes
+     */
+    void scheduled(RequestScheduler scheduler, RequestScheduler.Priority priority) {
+        if (this.scheduler != null) {
+            this.scheduler.release(this.priority);
+        }
+        this.scheduler = scheduler;
+        this.priority = priority;
+    }
+
+    boolean isLimited() {
+        return permit != null;
+    }
+
+    void releasePermit() {
+        if (permit != null) {
+            permit.release();
+            permit = null;
+        }
+        if (scheduler != null) {
+            scheduler.release(priority);
+            scheduler = null;
+        }
+    }
+
+    void complete() {
+        releasePermit();
+        if (completed || listener == null) {
+            return;
+        }
+        completed = true;
+        long ended = System.nanoTime();
+        long waitNanos = (sent < 0 ? ended : sent) - created;
+        long totalNanos = sent < 0 ? -1 : ended - sent;
+        long timeToFirstByteNanos = sent < 0 || firstByte < 0 ? -1 : firstByte - sent;
+        listener.onRequest(new RequestEvent(request.getMethod(), endpoint(), status, bytesRead, waitNanos,
+                totalNanos, timeToFirstByteNanos, parseNanos, crumbNanos, failure));
+    }
+
+    String endpoint() {
+        String path = request.getURI().getRawPath();
+        if (path == null) {
+            path = "/";
+        } else if (path.startsWith(context)) {
+            path = path.substring(context.length() - 1);
+        }
+        return EndpointTemplates.of(path);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Responses of model requests, kept so that a request whose response did not change returns the model parsed
+ * the previous time instead of parsing it again. Every request still reaches the server: cached responses are
+ * revalidated with {@code If-None-Match}/{@code If-Modified-Since} when the server sent an ETag or Last-Modified,
+ * and otherwise recognized by a digest of the body.
+ *
+ * Models returned from the cache are shared between callers and must not be modified.
+ */
+public class ResponseCache {
+    private final Cache<String, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxEntries number of responses kept, the least recently used are evicted first
+     * @param ttlMillis time after which an unused response is evicted
+     */
+    public ResponseCache(long maxEntries, long ttlMillis) {
+        this.entries = CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterAccess(ttlMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * @return number of requests answered with the model of a previous response
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of requests whose response had to be parsed
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long size() {
+        return entries.size();
+    }
+
+    public void invalidateAll() {
+        entries.invalidateAll();
+    }
+
+    Entry get(String key) {
+        return entries.getIfPresent(key);
+    }
+
+    Object hit(String key, Entry entry, HttpResponse response) {
+        hits.incrementAndGet();
+        entries.put(key, entry.revalidated(response));
+        return entry.model;
+    }
+
+    void miss(String key, HttpResponse response, byte[] digest, Object model) {
+        misses.incrementAndGet();
+        entries.put(key, new Entry(header(response, "ETag"), header(response, "Last-Modified"), digest, model));
+    }
+
+    void remove(String key) {
+        entries.invalidate(key);
+    }
+
+    static byte[] digest(byte[] body) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(body);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String header(HttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        return header == null ? null : header.getValue();
+    }
+
+    static final class Entry {
+        private final String etag;
+        private final String lastModified;
+        private final byte[] digest;
+        private final Object model;
+
+        Entry(String etag, String lastModified, byte[] digest, Object model) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.digest = digest;
+            this.model = model;
+        }
+
+        void addValidators(HttpGet request) {
+            if (etag != null) {
+                request.setHeader("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                request.setHeader("If-Modified-Since", lastModified);
+            }
+        }
+
+        boolean matches(byte[] otherDigest) {
+            return MessageDigest.isEqual(digest, otherDigest);
+        }
+
+        private Entry revalidated(HttpResponse response) {
+            String newEtag = header(response, "ETag");
+            String newLastModified = header(response, "Last-Modified");
+            return new Entry(newEtag == null ? etag : newEtag,
+                    newLastModified == null ? lastModified : newLastModified, digest, model);
+        }
+    }
+}
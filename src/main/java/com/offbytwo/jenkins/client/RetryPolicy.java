@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import org.apache.http.Header;
+
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * When a {@link JenkinsHttpClient} tries a request again. Only idempotent requests are retried, ex. never the POST
+ * requests triggering builds, after a failure to connect or read, or after a {@code 429}, {@code 502},
+ * {@code 503} or {@code 504} response.
+ *
+ * The delay before each retry is drawn at random up to an exponentially growing bound, so that the clients hit by
+ * the same outage do not all come back at the same time. A {@code Retry-After} header takes precedence.
+ */
+public class RetryPolicy {
+    private static final Set<String> IDEMPOTENT = new HashSet<String>(
+            Arrays.asList("GET", "HEAD", "OPTIONS", "PUT", "DELETE"));
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final AtomicLong retries = new AtomicLong();
+
+    /**
+     * Try 3 times, waiting up to 200 ms then up to 400 ms
+     */
+    public RetryPolicy() {
+        this(3, 200, 10000);
+    }
+
+    /**
+     * @param maxAttempts number of times a request is sent at most, the first time included
+     * @param baseDelayMillis bound of the delay before the first retry, doubled for each following retry
+     * @param maxDelayMillis longest delay before a retry
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @return number of retries so far, for all the requests using this policy
+     */
+    public long getRetries() {
+        return retries.get();
+    }
+
+    boolean isIdempotent(String method) {
+        return IDEMPOTENT.contains(method);
+    }
+
+    static boolean isRetryable(int status) {
+        return status == 429 || status == 502 || status == 503 || status == 504;
+    }
+
+    /**
+     * @param attempt number of times the request was sent
+     * @param retryAfter the {@code Retry-After} header of the response, can be null
+     * @return how long to wait before sending the request again
+     */
+    long getDelayMillis(int attempt, Header retryAfter) {
+        if (retryAfter != null) {
+            try {
+                return Math.min(maxDelayMillis, Long.parseLong(retryAfter.getValue().trim()) * 1000);
+            } catch (NumberFormatException e) {
+                // an HTTP date, use the backoff instead
+            }
+        }
+        long bound = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 30));
+        return ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    void backoff(long delayMillis) throws InterruptedIOException {
+        retries.incrementAndGet();
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Let concurrent identical calls share the execution and the result of the first one.
+ */
+final class SingleFlight {
+
+    interface Call<T> {
+        T call() throws IOException;
+    }
+
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight =
+            new ConcurrentHashMap<String, CompletableFuture<Object>>();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * @param key identifies identical calls
+     * @param call executed unless an identical call is already in flight
+     * @return the result of this call or of the identical call in flight
+     * @throws IOException
+     */
+    @SuppressWarnings("unchecked")
+    <T> T execute(String key, Call<T> call) throws IOException {
+        CompletableFuture<Object> own = new CompletableFuture<Object>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, own);
+        if (leader != null) {
+            coalesced.incrementAndGet();
+            return (T) await(leader);
+        }
+        try {
+            T result = call.call();
+            own.complete(result);
+            return result;
+        } catch (IOException | RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    long getCoalesced() {
+        return coalesced.get();
+    }
+
+    private static Object await(CompletableFuture<Object> leader) throws IOException {
+        try {
+            return leader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an identical request");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+}
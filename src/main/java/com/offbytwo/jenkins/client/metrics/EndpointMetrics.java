@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and latency histograms of one endpoint. Histograms are in microseconds.
+ */
+public final class EndpointMetrics {
+    private static final long ONE_HOUR_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final String endpoint;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final LatencyHistogram wait = new LatencyHistogram(ONE_HOUR_MICROS);
+    private final LatencyHistogram latency = new LatencyHistogram(ONE_HOUR_MICROS);
+    private final LatencyHistogram timeToFirstByte = new LatencyHistogram(ONE_HOUR_MICROS);
+    private final LatencyHistogram parse = new LatencyHistogram(ONE_HOUR_MICROS);
+    private final LatencyHistogram crumb = new LatencyHistogram(ONE_HOUR_MICROS);
+
+    EndpointMetrics(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    void record(RequestEvent event) {
+        requests.incrementAndGet();
+        if (event.isError()) {
+            errors.incrementAndGet();
+        }
+        bytesRead.addAndGet(event.getBytesRead());
+        wait.record(micros(event.getWaitNanos()));
+        latency.record(micros(event.getTotalNanos()));
+        timeToFirstByte.record(micros(event.getTimeToFirstByteNanos()));
+        if (event.getParseNanos() > 0) {
+            parse.record(micros(event.getParseNanos()));
+        }
+        if (event.getCrumbNanos() > 0) {
+            crumb.record(micros(event.getCrumbNanos()));
+        }
+    }
+
+    /**
+     * @return method and path template, ex. GET /job/{name}/api/json
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return number of requests failed or answered with an error status
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    /**
+     * @return time spent in the client before sending the request
+     */
+    public LatencyHistogram getWait() {
+        return wait;
+    }
+
+    /**
+     * @return time from sending the request to releasing the response
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public LatencyHistogram getTimeToFirstByte() {
+        return timeToFirstByte;
+    }
+
+    /**
+     * @return deserialization time of the requests whose response was deserialized
+     */
+    public LatencyHistogram getParse() {
+        return parse;
+    }
+
+    /**
+     * @return crumb overhead of the requests that needed a crumb
+     */
+    public LatencyHistogram getCrumb() {
+        return crumb;
+    }
+
+    void reset() {
+        requests.set(0);
+        errors.set(0);
+        bytesRead.set(0);
+        wait.reset();
+        latency.reset();
+        timeToFirstByte.reset();
+        parse.reset();
+        crumb.reset();
+    }
+
+    private static long micros(long nanos) {
+        return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-50s requests=%d errors=%d bytes=%d p50=%dus p99=%dus p999=%dus ttfb.p99=%dus parse.p99=%dus",
+                endpoint, getRequests(), getErrors(), getBytesRead(), latency.getValueAtPercentile(50),
+                latency.getValueAtPercentile(99), latency.getValueAtPercentile(99.9),
+                timeToFirstByte.getValueAtPercentile(99), parse.getValueAtPercentile(99));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client.metrics;
+
+/**
+ * Reduce request paths to endpoint templates by replacing the names, numbers and file paths they contain, so that
+ * requests to the same kind of resource are accounted together, ex. {@code /job/trunk/12/api/json} becomes
+ * {@code /job/{name}/{number}/api/json}.
+ */
+public final class EndpointTemplates {
+    private static final String NAME = "{name}";
+
+    private EndpointTemplates() {
+    }
+
+    /**
+     * @param path path of a request, without query string
+     * @return the template of the path
+     */
+    public static String of(String path) {
+        StringBuilder template = new StringBuilder(path.length());
+        String previous = "";
+        int start = 0;
+        while (start < path.length()) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            if (end > start) {
+                String segment = path.substring(start, end);
+                template.append('/');
+                if (isNamed(previous)) {
+                    template.append(NAME);
+                    // a job named "job" or "item" must not name the next segment too
+                    segment = NAME;
+                } else if (isNumber(segment)) {
+                    template.append(previous.equals("item") ? "{id}" : "{number}");
+                } else if (segment.equals("artifact") || segment.equals("ws")) {
+                    template.append(segment).append("/{path}");
+                    return template.toString();
+                } else {
+                    template.append(segment);
+                }
+                previous = segment;
+            }
+            start = end + 1;
+        }
+        if (path.endsWith("/") || template.length() == 0) {
+            template.append('/');
+        }
+        return template.toString();
+    }
+
+    private static boolean isNamed(String previous) {
+        return previous.equals("job") || previous.equals("view") || previous.equals("computer")
+                || previous.equals("label") || previous.equals("process");
+    }
+
+    private static boolean isNumber(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            if (!Character.isDigit(segment.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link RequestListener} keeping latency histograms per endpoint, ex.
+ *
+ * <pre>
+ * HistogramRecorder recorder = new HistogramRecorder();
+ * jenkins.setRequestListener(recorder);
+ * ...
+ * long p99 = recorder.getEndpoint("GET /job/{name}/api/json").getLatency().getValueAtPercentile(99);
+ * </pre>
+ */
+public class HistogramRecorder implements RequestListener {
+    private final ConcurrentMap<String, EndpointMetrics> endpoints = new ConcurrentHashMap<String, EndpointMetrics>();
+
+    @Override
+    public void onRequest(RequestEvent event) {
+        String key = event.getMethod() + " " + event.getEndpoint();
+        EndpointMetrics metrics = endpoints.get(key);
+        if (metrics == null) {
+            EndpointMetrics created = new EndpointMetrics(key);
+            metrics = endpoints.putIfAbsent(key, created);
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+        metrics.record(event);
+    }
+
+    /**
+     * @param endpoint method and path template, ex. GET /job/{name}/api/json
+     * @return the metrics of the endpoint, null if it was not requested
+     */
+    public EndpointMetrics getEndpoint(String endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    /**
+     * @return the metrics of every endpoint requested so far, sorted by endpoint
+     */
+    public Map<String, EndpointMetrics> getEndpoints() {
+        return Collections.unmodifiableMap(new TreeMap<String, EndpointMetrics>(endpoints));
+    }
+
+    /**
+     * Clear all the counters and histograms
+     */
+    public void reset() {
+        for (EndpointMetrics metrics : endpoints.values()) {
+            metrics.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        for (EndpointMetrics metrics : getEndpoints().values()) {
+            report.append(metrics).append('\n');
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client.metrics;
+
+/**
+ * What happened during one HTTP request. Times are in nanoseconds, -1 when unknown.
+ */
+public final class RequestEvent {
+    private final String method;
+    private final String endpoint;
+    private final int status;
+    private final long bytesRead;
+    private final long waitNanos;
+    private final long totalNanos;
+    private final long timeToFirstByteNanos;
+    private final long parseNanos;
+    private final long crumbNanos;
+    private final Throwable failure;
+
+    public RequestEvent(String method, String endpoint, int status, long bytesRead, long waitNanos, long totalNanos,
+                        long timeToFirstByteNanos, long parseNanos, long crumbNanos, Throwable failure) {
+        this.method = method;
+        this.endpoint = endpoint;
+        this.status = status;
+        this.bytesRead = bytesRead;
+        this.waitNanos = waitNanos;
+        this.totalNanos = totalNanos;
+        this.timeToFirstByteNanos = timeToFirstByteNanos;
+        this.parseNanos = parseNanos;
+        this.crumbNanos = crumbNanos;
+        this.failure = failure;
+    }
+
+    /**
+     * @return HTTP method, ex. GET
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return path template of the request, ex. /job/{name}/api/json
+     * @see EndpointTemplates#of(String)
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * @return status code of the response, 0 if no response was received
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return number of bytes of the response entity consumed
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return time spent in the client before sending the last attempt of the request: getting a crumb, waiting for
+     * the rate limiter, a slot or permit, and backing off between retries
+     */
+    public long getWaitNanos() {
+        return waitNanos;
+    }
+
+    /**
+     * @return time from sending the request to releasing the response, -1 if it was never sent
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * @return time from sending the request to receiving the response headers
+     */
+    public long getTimeToFirstByteNanos() {
+        return timeToFirstByteNanos;
+    }
+
+    /**
+     * @return time spent deserializing the response, 0 if it was not deserialized
+     */
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    /**
+     * @return time spent getting a crumb and retrying a request rejected for a stale crumb
+     */
+    public long getCrumbNanos() {
+        return crumbNanos;
+    }
+
+    /**
+     * @return the exception that interrupted the request, null if a response was received
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return whether the request failed or was answered with an error status
+     */
+    public boolean isError() {
+        return failure != null || status >= 400;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + endpoint + " " + status + " " + bytesRead + "B " + totalNanos / 1000 + "us";
+    }
+}
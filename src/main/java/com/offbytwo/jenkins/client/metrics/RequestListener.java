@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client.metrics;
+
+/**
+ * Receives one {@link RequestEvent} per HTTP request made by a
+ * {@link com.offbytwo.jenkins.client.JenkinsHttpClient}, once the response has been released or the request failed.
+ *
+ * Listeners are called on the requesting thread, possibly from many threads at once, so they have to be thread safe
+ * and cheap.
+ */
+public interface RequestListener {
+
+    void onRequest(RequestEvent event);
+}
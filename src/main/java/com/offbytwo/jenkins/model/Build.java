@@ -6,6 +6,8 @@
 
 package com.offbytwo.jenkins.model;
 
+import com.offbytwo.jenkins.client.Projection;
+
 import java.io.IOException;
 
 public class Build extends BaseModel {
@@ -35,4 +37,11 @@ public class Build extends BaseModel {
     public BuildWithDetails details() throws IOException {
         return client.get(url, BuildWithDetails.class);
     }
+
+    /**
+     * Get the projected part of the build details, fields outside of the projection are left empty
+     */
+    public BuildWithDetails details(Projection projection) throws IOException {
+        return client.get(url, BuildWithDetails.class, projection);
+    }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.model;
+
+import com.offbytwo.jenkins.client.JenkinsHttpClient;
+import com.offbytwo.jenkins.client.Projection;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Walks the full build history of a job, newest first, one page at a time using the {@code allBuilds{m,n}} range
+ * syntax. When an executor is given the next page is fetched in the background while the current one is consumed;
+ * at most one page is read ahead, so nothing more is fetched once the consumer stops iterating.
+ *
+ * Failures to fetch a page are thrown from {@link #hasNext()} or {@link #next()} as {@link UncheckedIOException}.
+ */
+class BuildHistoryIterator implements Iterator<Build> {
+    private final JenkinsHttpClient client;
+    private final String jobUrl;
+    private final int pageSize;
+    private final Executor readAhead;
+
+    private List<Build> page;
+    private int index;
+    private int nextPageStart;
+    private boolean lastPage;
+    private CompletableFuture<List<Build>> nextPage;
+
+    BuildHistoryIterator(JenkinsHttpClient client, String jobUrl, int pageSize, Executor readAhead) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        this.client = client;
+        this.jobUrl = jobUrl;
+        this.pageSize = pageSize;
+        this.readAhead = readAhead;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (page == null || index >= page.size()) {
+            if (page != null && lastPage) {
+                return false;
+            }
+            page = takeNextPage();
+            index = 0;
+            lastPage = page.size() < pageSize;
+            if (!lastPage && readAhead != null) {
+                nextPage = readAhead();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Build next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Build build = page.get(index++);
+        build.setClient(client);
+        return build;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private List<Build> takeNextPage() {
+        if (nextPage == null) {
+            int start = nextPageStart;
+            nextPageStart += pageSize;
+            return fetchPage(start);
+        }
+        CompletableFuture<List<Build>> pending = nextPage;
+        nextPage = null;
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw (UncheckedIOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private CompletableFuture<List<Build>> readAhead() {
+        final int start = nextPageStart;
+        nextPageStart += pageSize;
+        return CompletableFuture.supplyAsync(() -> fetchPage(start), readAhead);
+    }
+
+    private List<Build> fetchPage(int start) {
+        Projection range = Projection.of("allBuilds[number,url]{" + start + "," + (start + pageSize) + "}");
+        try {
+            BuildHistoryPage result = client.get(jobUrl, BuildHistoryPage.class, range);
+            return result == null ? Collections.<Build>emptyList() : result.getAllBuilds();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of a job build history, as returned by {@code tree=allBuilds[number,url]{m,n}}
+ */
+class BuildHistoryPage extends BaseModel {
+    List<Build> allBuilds = new ArrayList<Build>();
+
+    public List<Build> getAllBuilds() {
+        return allBuilds;
+    }
+
+    public void setAllBuilds(List<Build> allBuilds) {
+        this.allBuilds = allBuilds == null ? new ArrayList<Build>() : allBuilds;
+    }
+}
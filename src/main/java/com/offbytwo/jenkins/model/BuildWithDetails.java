@@ -12,6 +12,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.channels.WritableByteChannel;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -98,16 +99,41 @@ public class BuildWithDetails extends Build {
         return client.get(url + "/logText/progressiveText");
     }
 
+    /**
+     * Stream the console log to the channel instead of holding it in memory, see {@link ConsoleTailer} to follow
+     * the log of a running build
+     *
+     * @param channel where to write the log, must be blocking
+     * @throws IOException
+     */
+    public void streamConsoleOutputText(WritableByteChannel channel) throws IOException {
+        new ConsoleTailer(this).poll(channel);
+    }
+
     public String getConsoleOutputHtml() throws IOException {
         return client.get(url + "/logText/progressiveHtml");
     }
 
+    /**
+     * @param a an artifact of this build
+     * @return the stream of the artifact, to be closed once read
+     * @throws IOException
+     * @throws URISyntaxException
+     */
     public InputStream downloadArtifact(Artifact a) throws IOException, URISyntaxException {
+        return client.getFile(getArtifactUri(a));
+    }
+
+    /**
+     * @param a an artifact of this build
+     * @return where to download the artifact from
+     * @throws URISyntaxException
+     */
+    public URI getArtifactUri(Artifact a) throws URISyntaxException {
         //We can't just put the artifact's relative path at the end of the url string,
         //as there could be characters that need to be escaped.
         URI uri = new URI(getUrl());
         String artifactPath = uri.getPath() + "artifact/" + a.getRelativePath();
-        URI artifactUri = new URI(uri.getScheme(), uri.getUserInfo(), uri.getHost(), uri.getPort(), artifactPath, "", "");
-        return client.getFile(artifactUri);
+        return new URI(uri.getScheme(), uri.getUserInfo(), uri.getHost(), uri.getPort(), artifactPath, "", "");
     }
 }
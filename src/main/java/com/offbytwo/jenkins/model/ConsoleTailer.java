@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.model;
+
+import com.offbytwo.jenkins.client.ProgressiveText;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.Consumer;
+
+/**
+ * Follow the console log of a build, downloading only the text added since the previous poll.
+ *
+ * <pre>
+ * new ConsoleTailer(build).follow(Channels.newChannel(System.out), 1000);
+ * </pre>
+ */
+public class ConsoleTailer {
+    private final Build build;
+    private final String path;
+    private long offset;
+    private boolean moreData = true;
+
+    /**
+     * @param build build whose log to follow, from the beginning
+     */
+    public ConsoleTailer(Build build) {
+        this(build, 0);
+    }
+
+    /**
+     * @param build build whose log to follow
+     * @param offset number of bytes of the log to skip
+     */
+    public ConsoleTailer(Build build, long offset) {
+        this.build = build;
+        this.path = (build.getUrl().endsWith("/") ? build.getUrl() : build.getUrl() + "/") + "logText/progressiveText";
+        this.offset = offset;
+    }
+
+    /**
+     * @return number of bytes of the log read so far, including the skipped ones
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return false once the build is over and its whole log was read
+     */
+    public boolean hasMoreData() {
+        return moreData;
+    }
+
+    /**
+     * Write the text added to the log since the last poll
+     *
+     * @param channel where to write the text, must be blocking
+     * @return whether more text is expected
+     * @throws IOException
+     */
+    public boolean poll(WritableByteChannel channel) throws IOException {
+        ProgressiveText text = build.getClient().getProgressiveText(path, offset, channel);
+        if (text == null) {
+            throw new IOException("No console log for " + build.getUrl());
+        }
+        offset = text.getNextStart();
+        moreData = text.hasMoreData();
+        return moreData;
+    }
+
+    /**
+     * Write the log as it grows until the build is over
+     *
+     * @param channel where to write the text, must be blocking
+     * @param pollIntervalMillis time to wait between two polls
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public void follow(WritableByteChannel channel, long pollIntervalMillis) throws IOException, InterruptedException {
+        while (poll(channel)) {
+            Thread.sleep(pollIntervalMillis);
+        }
+    }
+
+    /**
+     * Hand the log to the consumer as it grows until the build is over. Buffers are only valid during the call.
+     *
+     * @param consumer receives the chunks of text as they are downloaded
+     * @param pollIntervalMillis time to wait between two polls
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public void follow(Consumer<ByteBuffer> consumer, long pollIntervalMillis) throws IOException, InterruptedException {
+        follow(new ConsumerChannel(consumer), pollIntervalMillis);
+    }
+
+    private static class ConsumerChannel implements WritableByteChannel {
+        private final Consumer<ByteBuffer> consumer;
+
+        ConsumerChannel(Consumer<ByteBuffer> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public int write(ByteBuffer buffer) {
+            int remaining = buffer.remaining();
+            consumer.accept(buffer.asReadOnlyBuffer());
+            buffer.position(buffer.limit());
+            return remaining;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -6,8 +6,10 @@
 
 package com.offbytwo.jenkins.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.Function;
 import com.google.common.collect.Collections2;
+import com.offbytwo.jenkins.client.Projection;
 
 import java.io.IOException;
 import java.util.Map;
@@ -18,6 +20,8 @@ import static org.apache.commons.lang.StringUtils.join;
 public class Job extends BaseModel {
     private String name;
     private String url;
+    @JsonProperty("_class")
+    private String itemClass;
 
     public Job() {
     }
@@ -36,26 +40,51 @@ public class Job extends BaseModel {
         return url;
     }
 
+    /**
+     * @return the class of the item on the server, ex. {@code hudson.model.FreeStyleProject} or
+     * {@code com.cloudbees.hudson.plugins.folder.Folder}, null if the server does not tell (before Jenkins 2.0)
+     */
+    public String getItemClass() {
+        return itemClass;
+    }
+
     public JobWithDetails details() throws IOException {
         return client.get(url, JobWithDetails.class);
     }
 
+    /**
+     * Get the projected part of the job details, fields outside of the projection are left empty
+     */
+    public JobWithDetails details(Projection projection) throws IOException {
+        return client.get(url, JobWithDetails.class, projection);
+    }
+
     /**
      * Trigger a build without parameters
+     *
+     * @return the queue item of the build
+     * @throws IOException
      */
-    public void build() throws IOException {
-        client.post(url + "build");
+    public QueueReference build() throws IOException {
+        return queueReference(client.postForLocation(url + "build"));
     }
 
     /**
      * Trigger a parameterized build
      *
      * @param params the job parameters
+     * @return the queue item of the build
      * @throws IOException
      */
-    public void build(Map<String, String> params) throws IOException {
+    public QueueReference build(Map<String, String> params) throws IOException {
         String qs = join(Collections2.transform(params.entrySet(), new MapEntryToQueryStringPair()), "&");
-        client.post(url + "buildWithParameters?" + qs, null, null);
+        return queueReference(client.postForLocation(url + "buildWithParameters?" + qs));
+    }
+
+    private QueueReference queueReference(String location) {
+        QueueReference reference = new QueueReference(location);
+        reference.setClient(client);
+        return reference;
     }
 
     private static class MapEntryToQueryStringPair implements Function<Map.Entry<String, String>, String> {
@@ -8,13 +8,21 @@ package com.offbytwo.jenkins.model;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Lists;
+import com.offbytwo.jenkins.client.JenkinsHttpClient;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class JobWithDetails extends Job {
     String displayName;
     boolean buildable;
     List<Build> builds;
+    transient volatile List<Build> buildsWithClient;
     Build lastBuild;
     Build lastCompletedBuild;
     Build lastFailedBuild;
@@ -34,16 +42,74 @@ public class JobWithDetails extends Job {
     	return buildable;
     }
 
+    /**
+     * @return the builds embedded in the job payload, for the full history see {@link #getAllBuilds(int)}
+     */
     public List<Build> getBuilds() {
-        return Lists.transform(builds, new Function<Build, Build>() {
+        // the job may be shared between threads through a cache, read the field once
+        List<Build> ret = buildsWithClient;
+        if (ret == null) {
+            if (builds == null) {
+                return Collections.emptyList();
+            }
+            List<Build> withClient = new ArrayList<Build>(builds.size());
+            for (Build from : builds) {
+                withClient.add(buildWithClient(from));
+            }
+            ret = Collections.unmodifiableList(withClient);
+            buildsWithClient = ret;
+        }
+        return ret;
+    }
+
+    /**
+     * Iterate over the complete build history of this job, newest first, fetching {@code pageSize} builds per
+     * request as the iteration goes.
+     *
+     * @param pageSize number of builds fetched per request
+     * @return the builds of this job
+     */
+    public Iterable<Build> getAllBuilds(int pageSize) {
+        return getAllBuilds(pageSize, null);
+    }
+
+    /**
+     * Iterate over the complete build history of this job, newest first. While a page is consumed the next one is
+     * fetched on the given executor.
+     *
+     * @param pageSize number of builds fetched per request
+     * @param readAhead executor fetching the next page in the background, null to fetch pages on demand
+     * @return the builds of this job
+     */
+    public Iterable<Build> getAllBuilds(final int pageSize, final Executor readAhead) {
+        return new Iterable<Build>() {
             @Override
-            public Build apply(Build from) {
-                return buildWithClient(from);
+            public Iterator<Build> iterator() {
+                return new BuildHistoryIterator(client, getUrl(), pageSize, readAhead);
             }
-        });
+        };
+    }
+
+    /**
+     * @see #getAllBuilds(int, Executor)
+     */
+    public Stream<Build> streamAllBuilds(int pageSize, Executor readAhead) {
+        return StreamSupport.stream(getAllBuilds(pageSize, readAhead).spliterator(), false);
+    }
+
+    @Override
+    public void setClient(JenkinsHttpClient client) {
+        if (client != getClient()) {
+            super.setClient(client);
+            buildsWithClient = null;
+        }
     }
 
     private Build buildWithClient(Build from) {
+        if (from == null) {
+            // not part of the payload, ex. left out by a projection
+            return null;
+        }
         Build ret = new Build(from);
         ret.setClient(client);
         return ret;
@@ -83,6 +83,10 @@ public class MavenJobWithDetails extends MavenJob {
     }
     
     private MavenBuild buildWithClient(MavenBuild from) {
+        if (from == null) {
+            // not part of the payload, ex. left out by a projection
+            return null;
+        }
         MavenBuild ret = new MavenBuild(from);
         ret.setClient(client);
         return ret;
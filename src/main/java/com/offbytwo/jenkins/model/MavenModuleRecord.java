@@ -1,5 +1,7 @@
 package com.offbytwo.jenkins.model;
 
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.List;
 
 public class MavenModuleRecord extends BaseModel {
@@ -53,5 +55,18 @@ public class MavenModuleRecord extends BaseModel {
     public void setUrl(String url) {
         this.url = url;
     }
+
+    /**
+     * @param artifact an artifact of this module
+     * @return where to download the artifact from, under the {@code groupId/artifactId/version} directory
+     * @throws URISyntaxException
+     */
+    public URI getArtifactUri(MavenArtifact artifact) throws URISyntaxException {
+        URI uri = new URI(url);
+        String artifactPath = uri.getPath() + (uri.getPath().endsWith("/") ? "" : "/") + "artifact/"
+                + artifact.getGroupId() + "/" + artifact.getArtifactId() + "/" + artifact.getVersion() + "/"
+                + artifact.getCanonicalName();
+        return new URI(uri.getScheme(), uri.getUserInfo(), uri.getHost(), uri.getPort(), artifactPath, null, null);
+    }
    
 }
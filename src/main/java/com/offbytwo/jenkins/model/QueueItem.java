@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.model;
+
+/**
+ * An item of the build queue. Once it leaves the queue, the item is kept by Jenkins for a few minutes with the
+ * build it started.
+ */
+public class QueueItem extends BaseModel {
+    long id;
+    boolean blocked;
+    boolean buildable;
+    boolean stuck;
+    boolean cancelled;
+    String why;
+    long inQueueSince;
+    Build executable;
+
+    public long getId() {
+        return id;
+    }
+
+    public boolean isBlocked() {
+        return blocked;
+    }
+
+    public boolean isBuildable() {
+        return buildable;
+    }
+
+    public boolean isStuck() {
+        return stuck;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return why the item is still waiting, null once it left the queue
+     */
+    public String getWhy() {
+        return why;
+    }
+
+    public long getInQueueSince() {
+        return inQueueSince;
+    }
+
+    /**
+     * @return the build started for this item, null until it leaves the queue
+     */
+    public Build getExecutable() {
+        if (executable != null) {
+            executable.setClient(client);
+        }
+        return executable;
+    }
+}
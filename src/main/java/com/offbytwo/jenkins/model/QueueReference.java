@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.model;
+
+import java.io.IOException;
+
+/**
+ * The queue item created by triggering a build, see {@link com.offbytwo.jenkins.QueueTracker} to find the
+ * build it turns into
+ */
+public class QueueReference extends BaseModel {
+    private final String queueItemUrl;
+
+    public QueueReference(String queueItemUrl) {
+        this.queueItemUrl = queueItemUrl;
+    }
+
+    /**
+     * @return url of the queue item, ex. http://localhost:8080/queue/item/42/, null if the server did not tell
+     */
+    public String getQueueItemUrl() {
+        return queueItemUrl;
+    }
+
+    /**
+     * @return id of the queue item, -1 if unknown
+     */
+    public long getId() {
+        if (queueItemUrl == null) {
+            return -1;
+        }
+        String url = queueItemUrl.endsWith("/") ? queueItemUrl.substring(0, queueItemUrl.length() - 1) : queueItemUrl;
+        try {
+            return Long.parseLong(url.substring(url.lastIndexOf('/') + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return the current state of the queue item, null if Jenkins forgot it
+     * @throws IOException
+     */
+    public QueueItem details() throws IOException {
+        return client.get(queueItemUrl, QueueItem.class);
+    }
+}
@@ -1,9 +1,14 @@
 package com.offbytwo.jenkins.tools;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * Created by IntelliJ IDEA.
  * User: eric
@@ -12,12 +17,24 @@ import com.fasterxml.jackson.dataformat.xml.XmlMapper;
  */
 public class Utils {
 
+  /**
+   * Set this system property to true to populate the models with generated accessors, jackson-module-afterburner
+   * must then be on the classpath.
+   */
+  public static final String AFTERBURNER_PROPERTY = "jenkins.client.afterburner";
+
+  private static final String AFTERBURNER_MODULE = "com.fasterxml.jackson.module.afterburner.AfterburnerModule";
+
   private static ObjectMapper JSON_MAPPER;
   private static ObjectMapper XML_MAPPER;
+  private static boolean AFTERBURNER_ENABLED;
+  private static final ConcurrentMap<Class<?>, ObjectReader> JSON_READERS = new ConcurrentHashMap<Class<?>, ObjectReader>();
+  private static final ConcurrentMap<Class<?>, ObjectReader> XML_READERS = new ConcurrentHashMap<Class<?>, ObjectReader>();
 
   static {
     JSON_MAPPER = new ObjectMapper();
     JSON_MAPPER.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    AFTERBURNER_ENABLED = registerAfterburner(JSON_MAPPER, System.getProperty(AFTERBURNER_PROPERTY));
     XML_MAPPER = new XmlMapper();
     XML_MAPPER.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
   }
@@ -25,11 +42,72 @@ public class Utils {
   private Utils() {
   }
 
+  /**
+   * @return the mapper of the JSON models, to be configured before the first request: the readers of
+   * {@link #getJsonReader(Class)} keep the configuration of the mapper when they were created
+   */
   public static ObjectMapper getJsonMapper() {
     return JSON_MAPPER;
   }
 
+  /**
+   * @return the mapper of the XML models, to be configured before the first request, see {@link #getJsonMapper()}
+   */
   public static ObjectMapper getXmlMapper() {
     return XML_MAPPER;
   }
+
+  /**
+   * @return whether the models are populated with generated accessors instead of reflection
+   */
+  public static boolean isAfterburnerEnabled() {
+    return AFTERBURNER_ENABLED;
+  }
+
+  /**
+   * @return a reader bound to the given class, created once and shared, so that the type is only resolved on
+   * first use. Later changes of the mapper are not seen by the readers already created.
+   */
+  public static ObjectReader getJsonReader(Class<?> cls) {
+    ObjectReader reader = JSON_READERS.get(cls);
+    if (reader == null) {
+      reader = JSON_MAPPER.reader(cls);
+      JSON_READERS.putIfAbsent(cls, reader);
+    }
+    return reader;
+  }
+
+  /**
+   * @return a reader bound to the given class, created once and shared
+   */
+  public static ObjectReader getXmlReader(Class<?> cls) {
+    ObjectReader reader = XML_READERS.get(cls);
+    if (reader == null) {
+      reader = XML_MAPPER.reader(cls);
+      XML_READERS.putIfAbsent(cls, reader);
+    }
+    return reader;
+  }
+
+  /**
+   * Use generated bytecode instead of reflection to populate the models when asked to and the (optional)
+   * afterburner module is available. Only an explicit opt-in enables it, not the module being on the classpath.
+   *
+   * @param enabled value of the {@link #AFTERBURNER_PROPERTY} property
+   * @return whether the module was registered
+   */
+  static boolean registerAfterburner(ObjectMapper mapper, String enabled) {
+    if (!"true".equalsIgnoreCase(enabled)) {
+      return false;
+    }
+    try {
+      mapper.registerModule((Module) Class.forName(AFTERBURNER_MODULE).newInstance());
+      return true;
+    } catch (ClassNotFoundException e) {
+      // not on the classpath, keep reflection based accessors
+      return false;
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Unable to load " + AFTERBURNER_MODULE, e);
+    }
+  }
 }
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins;
+
+import com.offbytwo.jenkins.client.JenkinsHttpClient;
+import com.offbytwo.jenkins.model.MavenArtifact;
+import com.offbytwo.jenkins.model.MavenModuleRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.offbytwo.jenkins.TestServer.respond;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ArtifactCacheTest {
+    private static final byte[] FIRST = content(100, 1);
+    private static final byte[] SECOND = content(100, 2);
+    private static final byte[] THIRD = content(100, 3);
+
+    private TestServer server;
+    private final ExecutorService linker = Executors.newSingleThreadExecutor();
+    private JenkinsHttpClient client;
+    private Path directory;
+    private final AtomicInteger downloads = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new TestServer();
+        serve("/first", FIRST);
+        serve("/second", SECOND);
+        serve("/third", THIRD);
+        serve("/job/app/1/com.example$app/artifact/com.example/app/1.0/app-1.0.jar", FIRST);
+        client = new JenkinsHttpClient(server.uri());
+        directory = Files.createTempDirectory("artifact-cache");
+    }
+
+    @After
+    public void tearDown() {
+        linker.shutdownNow();
+        client.close();
+        server.close();
+        delete(directory.toFile());
+    }
+
+    @Test
+    public void shouldDownloadOnceAndServeFromDisk() throws Exception {
+        ArtifactCache cache = new ArtifactCache(directory.resolve("cache"), 1000);
+
+        Path first = cache.fetch(client, uri("/first"), md5(FIRST));
+        Path again = cache.fetch(client, uri("/first"), md5(FIRST).toUpperCase());
+
+        assertEquals(first, again);
+        assertArrayEquals(FIRST, Files.readAllBytes(again));
+        assertEquals(1, downloads.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        MappedByteBuffer mapped = cache.map(md5(FIRST));
+        byte[] read = new byte[mapped.remaining()];
+        mapped.get(read);
+        assertArrayEquals(FIRST, read);
+    }
+
+    @Test
+    public void shouldRejectContentNotMatchingChecksum() throws Exception {
+        ArtifactCache cache = new ArtifactCache(directory.resolve("cache"), 1000);
+        try {
+            cache.fetch(client, uri("/first"), md5(SECOND));
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("Checksum"));
+        }
+        assertNull(cache.get(md5(SECOND)));
+        assertEquals(0, cache.getCount());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() throws Exception {
+        ArtifactCache cache = new ArtifactCache(directory.resolve("cache"), 250);
+        cache.fetch(client, uri("/first"), md5(FIRST));
+        cache.fetch(client, uri("/second"), md5(SECOND));
+        cache.get(md5(FIRST));
+        cache.fetch(client, uri("/third"), md5(THIRD));
+
+        assertEquals(200, cache.getSize());
+        assertNull(cache.get(md5(SECOND)));
+        assertFalse(cache.get(md5(FIRST)) == null);
+
+        ArtifactCache reloaded = new ArtifactCache(directory.resolve("cache"), 250);
+        assertEquals(2, reloaded.getCount());
+        assertFalse(reloaded.get(md5(THIRD)) == null);
+    }
+
+    @Test
+    public void shouldDeleteDownloadsCutShort() throws Exception {
+        Path stale = Files.createDirectories(directory.resolve("cache")).resolve(md5(FIRST) + "123.tmp");
+        Files.write(stale, Arrays.copyOf(FIRST, 10));
+
+        ArtifactCache cache = new ArtifactCache(directory.resolve("cache"), 1000);
+
+        assertFalse(Files.exists(stale));
+        assertEquals(0, cache.getCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void shouldLinkMavenArtifactToTarget() throws Exception {
+        ArtifactCache cache = new ArtifactCache(directory.resolve("cache"), 1000);
+        MavenModuleRecord record = record();
+        MavenArtifact artifact = artifact(md5(FIRST));
+
+        Path first = cache.fetch(client, record, artifact, directory.resolve("first.jar"));
+        Path second = cache.fetch(client, record, artifact, directory.resolve("second.jar"));
+
+        assertArrayEquals(FIRST, Files.readAllBytes(first));
+        assertArrayEquals(FIRST, Files.readAllBytes(second));
+        assertEquals(1, downloads.get());
+    }
+
+    @Test
+    public void shouldDownloadArtifactWithoutChecksumToTarget() throws Exception {
+        ArtifactCache cache = new ArtifactCache(directory.resolve("cache"), 1000);
+
+        Path target = cache.fetch(client, record(), artifact(null), directory.resolve("app.jar"));
+
+        assertArrayEquals(FIRST, Files.readAllBytes(target));
+        assertEquals(0, cache.getCount());
+    }
+
+    @Test(timeout = 10000)
+    public void shouldNotEvictArtifactBeingLinked() throws Exception {
+        final CountDownLatch linking = new CountDownLatch(1);
+        final CountDownLatch evicted = new CountDownLatch(1);
+        final ArtifactCache cache = new ArtifactCache(directory.resolve("cache"), 150) {
+            @Override
+            public Path link(Path cached, Path target) throws IOException {
+                linking.countDown();
+                try {
+                    evicted.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return super.link(cached, target);
+            }
+        };
+        cache.fetch(client, uri("/first"), md5(FIRST));
+        Future<Path> linked = linker.submit(new Callable<Path>() {
+            @Override
+            public Path call() throws Exception {
+                return cache.fetch(client, record(), artifact(md5(FIRST)), directory.resolve("app.jar"));
+            }
+        });
+        linking.await();
+
+        cache.fetch(client, uri("/second"), md5(SECOND));
+        evicted.countDown();
+
+        assertArrayEquals(FIRST, Files.readAllBytes(linked.get()));
+        cache.fetch(client, uri("/third"), md5(THIRD));
+        assertNull(cache.get(md5(FIRST)));
+        assertEquals(1, cache.getCount());
+    }
+
+    private MavenModuleRecord record() {
+        MavenModuleRecord record = new MavenModuleRecord();
+        record.setUrl(uri("/job/app/1/com.example$app/").toString());
+        return record;
+    }
+
+    private static MavenArtifact artifact(String md5) {
+        MavenArtifact artifact = new MavenArtifact();
+        artifact.setGroupId("com.example");
+        artifact.setArtifactId("app");
+        artifact.setVersion("1.0");
+        artifact.setCanonicalName("app-1.0.jar");
+        artifact.setMd5sum(md5);
+        return artifact;
+    }
+
+    private void serve(String path, final byte[] content) {
+        server.route(path, exchange -> {
+            downloads.incrementAndGet();
+            respond(exchange, 200, "application/octet-stream", content);
+        });
+    }
+
+    private URI uri(String path) {
+        return URI.create(server.url(path));
+    }
+
+    private static byte[] content(int size, int seed) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i * seed);
+        }
+        return content;
+    }
+
+    private static String md5(byte[] content) throws Exception {
+        return String.format("%032x", new BigInteger(1, MessageDigest.getInstance("MD5").digest(content)));
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
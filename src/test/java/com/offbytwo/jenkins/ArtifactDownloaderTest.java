@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins;
+
+import com.offbytwo.jenkins.client.ConnectionPoolSettings;
+import com.offbytwo.jenkins.client.JenkinsHttpClient;
+import com.offbytwo.jenkins.model.BuildWithDetails;
+import com.offbytwo.jenkins.model.MavenBuild;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.offbytwo.jenkins.TestServer.respond;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ArtifactDownloaderTest {
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+    private static final byte[] CONTENT = new byte[1000];
+
+    static {
+        for (int i = 0; i < CONTENT.length; i++) {
+            CONTENT[i] = (byte) (i * 31);
+        }
+    }
+
+    private TestServer server;
+    private final ArtifactDownloader downloader = new ArtifactDownloader(4, 100);
+    private JenkinsHttpClient client;
+    private Path directory;
+    private final AtomicInteger rangeRequests = new AtomicInteger();
+    private volatile boolean acceptRanges = true;
+    private volatile String headEtag;
+    private volatile String etag;
+    private volatile boolean honourIfRange = true;
+    private final List<String> ifRanges = new CopyOnWriteArrayList<String>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new TestServer();
+        server.route("/job/test/1/artifact/", this::serve);
+        server.route("/job/test/1/com.example$app/artifact/", this::serve);
+        server.route("/job/test/1/api/json", exchange ->
+                respond(exchange, 200, "{\"number\":1,\"url\":\"" + server.url("/job/test/1/") + "\",\"artifacts\":["
+                        + "{\"relativePath\":\"installer.bin\"},{\"relativePath\":\"docs/readme.txt\"}]}"));
+        server.route("/job/test/1/mavenArtifacts/api/json", exchange ->
+                respond(exchange, 200, "{\"moduleRecords\":[{\"url\":\"" + server.url("/job/test/1/com.example$app/") + "\","
+                        + "\"mainArtifact\":" + mavenArtifact("app-1.0.jar") + ","
+                        + "\"pomArtifact\":" + mavenArtifact("app-1.0.pom") + ","
+                        + "\"attachedArtifacts\":[" + mavenArtifact("app-1.0-sources.jar") + "]}]}"));
+        client = new JenkinsHttpClient(server.uri(), new ConnectionPoolSettings(4, 4));
+        directory = Files.createTempDirectory("artifacts");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        downloader.close();
+        client.close();
+        server.close();
+        delete(directory.toFile());
+    }
+
+    @Test
+    public void shouldDownloadInParallelParts() throws Exception {
+        Path target = directory.resolve("installer.bin");
+
+        assertEquals(1000, downloader.download(client, artifact(), target));
+
+        assertArrayEquals(CONTENT, Files.readAllBytes(target));
+        assertEquals(10, rangeRequests.get());
+        assertFalse(Files.exists(directory.resolve("installer.bin.part.state")));
+    }
+
+    @Test
+    public void shouldResumeMissingParts() throws Exception {
+        Path target = directory.resolve("installer.bin");
+        Files.write(directory.resolve("installer.bin.part"), Arrays.copyOf(CONTENT, 500));
+        Files.write(directory.resolve("installer.bin.part.state"),
+                "1000 null null\n0\n1\n2\n3\n4\n".getBytes(StandardCharsets.UTF_8));
+
+        downloader.download(client, artifact(), target);
+
+        assertArrayEquals(CONTENT, Files.readAllBytes(target));
+        assertEquals(5, rangeRequests.get());
+    }
+
+    @Test
+    public void shouldDownloadWholeFileWithoutRangeSupport() throws Exception {
+        acceptRanges = false;
+        Path target = directory.resolve("installer.bin");
+
+        assertEquals(1000, downloader.download(client, artifact(), target));
+
+        assertArrayEquals(CONTENT, Files.readAllBytes(target));
+    }
+
+    @Test
+    public void shouldFailWhenArtifactChangesDuringDownload() throws Exception {
+        headEtag = "\"v1\"";
+        etag = "\"v2\"";
+        Path target = directory.resolve("installer.bin");
+
+        try {
+            downloader.download(client, artifact(), target);
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("changed during the download"));
+        }
+        assertFalse(ifRanges.isEmpty());
+        for (String ifRange : ifRanges) {
+            assertEquals("\"v1\"", ifRange);
+        }
+        assertFalse(Files.exists(target));
+    }
+
+    @Test
+    public void shouldFailOnOtherEtagWhenIfRangeIsIgnored() throws Exception {
+        headEtag = "\"v1\"";
+        etag = "\"v2\"";
+        honourIfRange = false;
+
+        try {
+            downloader.download(client, artifact(), directory.resolve("installer.bin"));
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("changed during the download"));
+        }
+    }
+
+    @Test
+    public void shouldDownloadUnchangedArtifactWithIfRange() throws Exception {
+        headEtag = "\"v1\"";
+        etag = "\"v1\"";
+        Path target = directory.resolve("installer.bin");
+
+        downloader.download(client, artifact(), target);
+
+        assertArrayEquals(CONTENT, Files.readAllBytes(target));
+        assertEquals(10, ifRanges.size());
+    }
+
+    @Test
+    public void shouldReturnReadableStream() throws Exception {
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        try (InputStream stream = client.getFile(artifact())) {
+            byte[] buffer = new byte[128];
+            for (int count = stream.read(buffer); count != -1; count = stream.read(buffer)) {
+                read.write(buffer, 0, count);
+            }
+        }
+
+        assertArrayEquals(CONTENT, read.toByteArray());
+    }
+
+    @Test
+    public void shouldDownloadAllArtifactsMatchingGlob() throws Exception {
+        BuildWithDetails build = client.get("/job/test/1", BuildWithDetails.class);
+        final List<String> completed = new CopyOnWriteArrayList<String>();
+        final AtomicLong progress = new AtomicLong();
+        DownloadListener listener = new DownloadListener() {
+            @Override
+            public void progress(String path, long bytesDone, long length) {
+                progress.addAndGet(bytesDone == length ? 1 : 0);
+            }
+
+            @Override
+            public void completed(String path, long length, long elapsedNanos) {
+                completed.add(path);
+            }
+        };
+
+        DownloadReport report = downloader.downloadAll(build, "docs/*", directory.resolve("out"), listener);
+
+        assertTrue(report.isSuccessful());
+        assertEquals(1, report.getFiles());
+        assertEquals(1000, report.getBytes());
+        assertTrue(report.getBytesPerSecond() > 0);
+        assertEquals(Arrays.asList("docs/readme.txt"), completed);
+        assertEquals(1, progress.get());
+        assertArrayEquals(CONTENT, Files.readAllBytes(directory.resolve("out/docs/readme.txt")));
+        assertFalse(Files.exists(directory.resolve("out/installer.bin")));
+
+        assertEquals(2, downloader.downloadAll(build, null, directory.resolve("all"), null).getFiles());
+    }
+
+    @Test
+    public void shouldReportFailureOfListenerAsFailedFile() throws Exception {
+        acceptRanges = false;
+        BuildWithDetails build = client.get("/job/test/1", BuildWithDetails.class);
+        final List<String> failed = new CopyOnWriteArrayList<String>();
+        DownloadListener listener = new DownloadListener() {
+            @Override
+            public void progress(String path, long bytesDone, long length) {
+                if (path.equals("installer.bin")) {
+                    throw new IllegalStateException("listener failed");
+                }
+            }
+
+            @Override
+            public void failed(String path, IOException failure) {
+                failed.add(path);
+            }
+        };
+
+        DownloadReport report = downloader.downloadAll(build, null, directory.resolve("out"), listener);
+
+        assertFalse(report.isSuccessful());
+        assertEquals(1, report.getFiles());
+        assertTrue(report.getFailures().get("installer.bin").getCause() instanceof IllegalStateException);
+        assertEquals(Arrays.asList("installer.bin"), failed);
+        assertArrayEquals(CONTENT, Files.readAllBytes(directory.resolve("out/docs/readme.txt")));
+    }
+
+    @Test
+    public void shouldDownloadAllMavenModuleArtifacts() throws Exception {
+        MavenBuild build = new MavenBuild(1, server.url("/job/test/1"));
+        build.setClient(client);
+
+        DownloadReport report = downloader.downloadAll(build, "**.jar", directory.resolve("repo"), null);
+
+        assertEquals(2, report.getFiles());
+        assertArrayEquals(CONTENT, Files.readAllBytes(directory.resolve("repo/com.example/app/1.0/app-1.0.jar")));
+        assertTrue(Files.exists(directory.resolve("repo/com.example/app/1.0/app-1.0-sources.jar")));
+        assertFalse(Files.exists(directory.resolve("repo/com.example/app/1.0/app-1.0.pom")));
+    }
+
+    private URI artifact() {
+        return URI.create(server.url("/job/test/1/artifact/installer.bin"));
+    }
+
+    private static String mavenArtifact(String canonicalName) {
+        return "{\"groupId\":\"com.example\",\"artifactId\":\"app\",\"version\":\"1.0\",\"canonicalName\":\""
+                + canonicalName + "\"}";
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        int from = 0;
+        int to = CONTENT.length - 1;
+        int status = 200;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        Matcher matcher = range == null ? null : RANGE.matcher(range);
+        String current = "HEAD".equals(exchange.getRequestMethod()) ? headEtag : etag;
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        if (ifRange != null) {
+            ifRanges.add(ifRange);
+        }
+        if (current != null) {
+            exchange.getResponseHeaders().add("ETag", current);
+        }
+        boolean changed = honourIfRange && ifRange != null && !ifRange.equals(current);
+        if (acceptRanges && !changed && matcher != null && matcher.matches()) {
+            rangeRequests.incrementAndGet();
+            from = Integer.parseInt(matcher.group(1));
+            if (!matcher.group(2).isEmpty()) {
+                to = Math.min(to, Integer.parseInt(matcher.group(2)));
+            }
+            status = 206;
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + from + "-" + to + "/" + CONTENT.length);
+        }
+        if (acceptRanges) {
+            exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+        }
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().add("Connection", "close");
+            exchange.getResponseHeaders().add("Content-Length", String.valueOf(CONTENT.length));
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+        respond(exchange, status, "application/octet-stream", Arrays.copyOfRange(CONTENT, from, to + 1));
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins;
+
+import com.offbytwo.jenkins.client.ConnectionPoolSettings;
+import com.offbytwo.jenkins.client.Projection;
+import com.offbytwo.jenkins.model.JobWithDetails;
+import com.sun.net.httpserver.HttpExchange;
+import org.apache.http.client.HttpResponseException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.offbytwo.jenkins.TestServer.pause;
+import static com.offbytwo.jenkins.TestServer.respond;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncJenkinsServerTest {
+    private TestServer server;
+    private JenkinsServer jenkins;
+    private AsyncJenkinsServer async;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final List<String> posts = new CopyOnWriteArrayList<String>();
+    private volatile String query;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new TestServer();
+        server.route("/", exchange -> respond(exchange, 404, ""));
+        server.route("/api/json", exchange ->
+                respond(exchange, 200, "{\"jobs\":[{\"name\":\"test\"},{\"name\":\"slow\"}]}"));
+        server.route("/computer/api/json", exchange ->
+                respond(exchange, 200, "{\"computer\":[{\"displayName\":\"master\"}]}"));
+        server.route("/job/test/api/json", exchange -> {
+            query = exchange.getRequestURI().getQuery();
+            respond(exchange, 200, "{\"name\":\"test\"}");
+        });
+        server.route("/job/test/promotion/", exchange -> {
+            if ("POST".equals(exchange.getRequestMethod())) {
+                recordPost(exchange);
+            } else {
+                respond(exchange, 200, "<promotion/>");
+            }
+        });
+        server.route("/view/main/", this::recordPost);
+        server.route("/job/slow/", exchange -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            pause(50);
+            inFlight.decrementAndGet();
+            respond(exchange, 200, "{\"name\":\"slow\"}");
+        });
+        server.route("/job/broken/", exchange -> respond(exchange, 500, ""));
+        jenkins = new JenkinsServer(server.uri(), new ConnectionPoolSettings(10, 10));
+        async = jenkins.async(2);
+    }
+
+    @After
+    public void tearDown() {
+        async.close();
+        jenkins.close();
+        server.close();
+    }
+
+    @Test
+    public void shouldCompleteWithResponse() throws Exception {
+        assertEquals("test", async.getJob("test").get(5, TimeUnit.SECONDS).getName());
+    }
+
+    @Test
+    public void shouldLimitRequestsInFlight() throws Exception {
+        List<CompletableFuture<JobWithDetails>> jobs = new ArrayList<CompletableFuture<JobWithDetails>>();
+        for (int i = 0; i < 6; i++) {
+            jobs.add(async.getJob("slow"));
+        }
+        CompletableFuture.allOf(jobs.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, maxInFlight.get());
+    }
+
+    @Test
+    public void shouldFailFutureWithRequestError() throws Exception {
+        try {
+            async.getJobXml("broken").get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals(500, ((HttpResponseException) e.getCause()).getStatusCode());
+        }
+    }
+
+    @Test
+    public void shouldFailFutureAfterShutdown() throws Exception {
+        async.shutdown();
+
+        CompletableFuture<JobWithDetails> job = async.getJob("test");
+
+        assertTrue(job.isCompletedExceptionally());
+        try {
+            job.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    @Test
+    public void shouldMirrorPromotionAndViewCalls() throws Exception {
+        assertEquals("<promotion/>", async.getPromotionXml("test", "release").get(5, TimeUnit.SECONDS));
+        async.updatePromotionXML("test", "release", "<promotion/>").get(5, TimeUnit.SECONDS);
+        async.createPromotionXML("test", "qa", "<promotion/>").get(5, TimeUnit.SECONDS);
+        async.addJobToView("test", "main").get(5, TimeUnit.SECONDS);
+        async.removeJobFromView("test", "main").get(5, TimeUnit.SECONDS);
+
+        assertEquals(4, posts.size());
+        assertTrue(posts.get(0).startsWith("/job/test/promotion/process/release/config.xml"));
+        assertTrue(posts.get(1).startsWith("/job/test/promotion/createProcess"));
+        assertTrue(posts.get(2).startsWith("/view/main/addJobToView"));
+        assertTrue(posts.get(3).startsWith("/view/main/removeJobFromView"));
+    }
+
+    @Test
+    public void shouldStreamListingsAndProjectJobs() throws Exception {
+        final List<String> names = new CopyOnWriteArrayList<String>();
+        async.forEachJob(job -> names.add(job.getName())).get(5, TimeUnit.SECONDS);
+        async.forEachComputer(computer -> names.add(computer.getDisplayName())).get(5, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList("test", "slow", "master"), names);
+        assertEquals("test", async.getJob("test", Projection.of("name")).get(5, TimeUnit.SECONDS).getName());
+        assertEquals("tree=name", query);
+    }
+
+    private void recordPost(HttpExchange exchange) throws IOException {
+        posts.add(exchange.getRequestURI().getPath());
+        respond(exchange, 200, "");
+    }
+}
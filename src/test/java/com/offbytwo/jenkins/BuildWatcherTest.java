@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins;
+
+import com.offbytwo.jenkins.client.JenkinsHttpClient;
+import com.offbytwo.jenkins.model.BaseModel;
+import com.offbytwo.jenkins.model.Build;
+import com.offbytwo.jenkins.model.BuildResult;
+import com.offbytwo.jenkins.model.BuildWithDetails;
+import com.offbytwo.jenkins.tools.Utils;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BuildWatcherTest {
+
+    private final FakeClient client = new FakeClient();
+    private final BuildWatcher watcher = new BuildWatcher(10, 50);
+
+    @After
+    public void tearDown() {
+        watcher.close();
+    }
+
+    @Test
+    public void shouldCompleteWithDetailsOnceBuildIsOver() throws Exception {
+        client.finishAfterPolls = 3;
+        CompletableFuture<BuildWithDetails> future = watcher.watch(build(7));
+
+        BuildWithDetails details = future.get(5, TimeUnit.SECONDS);
+
+        assertEquals(7, details.getNumber());
+        assertEquals(BuildResult.SUCCESS, details.getResult());
+        assertEquals(1, client.detailRequests.get());
+        assertEquals(0, watcher.getWatchedCount());
+    }
+
+    @Test
+    public void shouldPollBuildsOfSameJobTogether() throws Exception {
+        client.finishAfterPolls = 2;
+        CompletableFuture<BuildWithDetails> first = watcher.watch(build(1));
+        CompletableFuture<BuildWithDetails> second = watcher.watch(build(2));
+        CompletableFuture<BuildWithDetails> third = watcher.watch(build(3));
+
+        CompletableFuture.allOf(first, second, third).get(5, TimeUnit.SECONDS);
+
+        assertTrue(client.jobRequests.get() > 0);
+        assertEquals(3, client.detailRequests.get());
+    }
+
+    @Test
+    public void shouldReturnSameFutureForSameBuild() {
+        Build build = build(4);
+        assertSame(watcher.watch(build), watcher.watch(build));
+    }
+
+    @Test
+    public void shouldFailForMissingBuild() throws Exception {
+        try {
+            watcher.watch(build(404)).get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void shouldFailToWatchOnceClosed() throws Exception {
+        watcher.close();
+        try {
+            watcher.watch(build(5)).get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(0, watcher.getWatchedCount());
+    }
+
+    @Test
+    public void shouldUseJobUrlOfBuild() {
+        assertEquals("http://localhost/job/trunk/", BuildWatcher.jobUrl("http://localhost/job/trunk/12/"));
+        assertEquals("http://localhost/job/trunk/", BuildWatcher.jobUrl("http://localhost/job/trunk/12"));
+    }
+
+    private Build build(int number) {
+        Build build = new Build(number, "http://localhost/job/trunk/" + number + "/");
+        build.setClient(client);
+        return build;
+    }
+
+    private static class FakeClient extends JenkinsHttpClient {
+        private final AtomicInteger polls = new AtomicInteger();
+        private final AtomicInteger jobRequests = new AtomicInteger();
+        private final AtomicInteger detailRequests = new AtomicInteger();
+        private volatile int finishAfterPolls;
+
+        FakeClient() {
+            super(URI.create("http://localhost/"));
+        }
+
+        @Override
+        public <T extends BaseModel> T get(String path, Class<T> cls) throws IOException {
+            if (path.contains("/404/")) {
+                return null;
+            }
+            boolean over = polls.get() >= finishAfterPolls;
+            if (cls == BuildWatcher.JobBuilds.class) {
+                polls.incrementAndGet();
+                jobRequests.incrementAndGet();
+                String status = status(over);
+                return cls.cast(Utils.getJsonMapper().readValue("{\"builds\":[{\"number\":3," + status + "},{\"number\":2,"
+                        + status + "},{\"number\":1," + status + "}]}", BuildWatcher.JobBuilds.class));
+            }
+            if (path.contains("tree=")) {
+                polls.incrementAndGet();
+                return cls.cast(Utils.getJsonMapper().readValue("{\"number\":7," + status(over) + "}",
+                        BuildWithDetails.class));
+            }
+            detailRequests.incrementAndGet();
+            int number = Integer.parseInt(path.replaceAll(".*/(\\d+)/$", "$1"));
+            return cls.cast(Utils.getJsonMapper().readValue("{\"number\":" + number + ",\"building\":false,"
+                    + "\"result\":\"SUCCESS\",\"duration\":1000}", BuildWithDetails.class));
+        }
+
+        private static String status(boolean over) {
+            return over ? "\"building\":false,\"result\":\"SUCCESS\"" : "\"building\":true,\"timestamp\":"
+                    + System.currentTimeMillis() + ",\"estimatedDuration\":10";
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins;
+
+import com.offbytwo.jenkins.client.ConnectionPoolSettings;
+import com.offbytwo.jenkins.model.BuildWithDetails;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.offbytwo.jenkins.TestServer.pause;
+import static com.offbytwo.jenkins.TestServer.respond;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InventoryCrawlerTest {
+    private static final Pattern JOB = Pattern.compile("/job/(\\w+)/api/json");
+    private static final Pattern BUILD = Pattern.compile("/job/(\\w+)/(\\d+)/api/json");
+    private static final Pattern COMPUTER = Pattern.compile("/computer/([^/]+)/api/json");
+
+    private TestServer server;
+    private JenkinsServer jenkins;
+    private InventoryCrawler crawler;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile String agent = "agent";
+    private volatile boolean computersListed = true;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new TestServer();
+        server.route("/", exchange -> {
+            requests.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            pause(10);
+            // before responding, the client sends its next request as soon as it has the response
+            inFlight.decrementAndGet();
+            route(exchange);
+        });
+        jenkins = new JenkinsServer(server.uri(), new ConnectionPoolSettings(10, 10));
+        crawler = new InventoryCrawler(jenkins, 3, 2);
+    }
+
+    @After
+    public void tearDown() {
+        crawler.close();
+        jenkins.close();
+        server.close();
+    }
+
+    @Test
+    public void shouldCrawlJobsRecentBuildsAndComputers() throws Exception {
+        Inventory inventory = crawler.crawl();
+
+        assertEquals(5, inventory.getJobs().size());
+        assertEquals(2, inventory.getComputers().size());
+        List<BuildWithDetails> builds = inventory.getBuilds().get("job0");
+        assertEquals(2, builds.size());
+        assertEquals(3, builds.get(0).getNumber());
+        assertEquals(2, builds.get(1).getNumber());
+        assertEquals(1, inventory.getBuilds().get("broken").size());
+        assertEquals(1, inventory.getFailures().size());
+        assertTrue(inventory.getFailures().keySet().iterator().next().endsWith("/job/broken/3/"));
+        assertEquals(5 + 2 + 10, crawler.getDiscovered());
+        assertEquals(16, crawler.getFetched());
+        assertEquals(1, crawler.getFailed());
+        assertTrue(crawler.getRate() > 0);
+        assertTrue(maxInFlight.get() <= 3);
+        assertTrue(inventory.getCompletedAt() >= inventory.getStartedAt());
+    }
+
+    @Test
+    public void shouldRecordUncheckedFailureOfItem() throws Exception {
+        agent = "bad agent";
+
+        Inventory inventory = crawler.crawl();
+
+        assertEquals(1, inventory.getComputers().size());
+        assertTrue(inventory.getFailures().containsKey("computer/bad agent"));
+        assertEquals(2, crawler.getFailed());
+    }
+
+    @Test
+    public void shouldCancelItemsWhenListingFails() throws Exception {
+        computersListed = false;
+        try {
+            crawler.crawl();
+            fail();
+        } catch (IOException e) {
+            // the computers cannot be listed
+        }
+        Thread.sleep(300);
+
+        // the listings, the jobs and their builds when nothing is cancelled
+        assertTrue(requests.get() < 2 + 5 + 10);
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        Matcher job = JOB.matcher(path);
+        Matcher build = BUILD.matcher(path);
+        Matcher computer = COMPUTER.matcher(path);
+        if (path.equals("/api/json")) {
+            StringBuilder jobs = new StringBuilder("{\"jobs\":[");
+            for (String name : new String[]{"job0", "job1", "job2", "job3", "broken"}) {
+                jobs.append(jobs.length() > 9 ? "," : "")
+                        .append("{\"name\":\"").append(name).append("\",\"url\":\"").append(server.url("/job/" + name + "/"))
+                        .append("\"}");
+            }
+            respond(exchange, 200, jobs.append("]}").toString());
+        } else if (job.matches()) {
+            String name = job.group(1);
+            respond(exchange, 200, "{\"name\":\"" + name + "\",\"builds\":["
+                    + "{\"number\":3,\"url\":\"" + server.url("/job/" + name + "/3/") + "\"},"
+                    + "{\"number\":2,\"url\":\"" + server.url("/job/" + name + "/2/") + "\"},"
+                    + "{\"number\":1,\"url\":\"" + server.url("/job/" + name + "/1/") + "\"}]}");
+        } else if (build.matches()) {
+            boolean broken = build.group(1).equals("broken") && build.group(2).equals("3");
+            respond(exchange, broken ? 500 : 200, "{\"number\":" + build.group(2) + ",\"result\":\"SUCCESS\"}");
+        } else if (path.equals("/computer/api/json")) {
+            respond(exchange, computersListed ? 200 : 500,
+                    "{\"computer\":[{\"displayName\":\"master\"},{\"displayName\":\"" + agent + "\"}]}");
+        } else if (computer.matches()) {
+            respond(exchange, 200, "{\"displayName\":\"" + computer.group(1) + "\"}");
+        } else {
+            respond(exchange, 404, "");
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins;
+
+import com.offbytwo.jenkins.ReconcileReport.Action;
+import com.offbytwo.jenkins.client.ConnectionPoolSettings;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.offbytwo.jenkins.TestServer.read;
+import static com.offbytwo.jenkins.TestServer.respond;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JobReconcilerTest {
+    private static final Pattern CONFIG = Pattern.compile("/job/(\\w+)/config\\.xml(/api/json)?");
+    private static final Pattern DELETE = Pattern.compile("/job/(\\w+)/doDelete(/api/json)?");
+
+    private TestServer server;
+    private JenkinsServer jenkins;
+    private JobReconciler reconciler;
+    private final Map<String, String> jobs = new ConcurrentHashMap<String, String>();
+    private final Map<String, String> classes = new ConcurrentHashMap<String, String>();
+    private final AtomicInteger writes = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        jobs.put("same", "<?xml version='1.1' encoding='UTF-8'?>\n<project>\n  <description>same</description>\n</project>");
+        jobs.put("changed", "<project><description>old</description></project>");
+        jobs.put("gone", "<project/>");
+        jobs.put("broken", "<project/>");
+        server = new TestServer();
+        server.route("/", exchange -> respond(exchange, 404, ""));
+        server.route("/api/json", this::list);
+        server.route("/createItem", exchange -> {
+            writes.incrementAndGet();
+            jobs.put(exchange.getRequestURI().getQuery().substring("name=".length()), read(exchange));
+            respond(exchange, 200, "");
+        });
+        server.route("/job/", this::job);
+        jenkins = new JenkinsServer(server.uri(), new ConnectionPoolSettings(4, 4));
+        reconciler = new JobReconciler(jenkins, 4);
+    }
+
+    @After
+    public void tearDown() {
+        reconciler.close();
+        jenkins.close();
+        server.close();
+    }
+
+    @Test
+    public void shouldApplyOnlyNeededChanges() throws Exception {
+        jobs.remove("broken");
+
+        ReconcileReport report = reconciler.reconcile(desired(), true);
+
+        assertTrue(report.isSuccessful());
+        assertEquals(Action.UNCHANGED, report.getResults().get("same").getAction());
+        assertFalse(report.getResults().get("same").isApplied());
+        assertEquals(Action.UPDATE, report.getResults().get("changed").getAction());
+        assertEquals(Action.CREATE, report.getResults().get("fresh").getAction());
+        assertEquals(Action.DELETE, report.getResults().get("gone").getAction());
+        assertTrue(report.getResults().get("gone").isApplied());
+        assertEquals(3, writes.get());
+        assertEquals("<project><description>new</description></project>", jobs.get("changed"));
+        assertEquals("<project/>", jobs.get("fresh"));
+        assertNull(jobs.get("gone"));
+    }
+
+    @Test
+    public void shouldOnlyReportChangesOnDryRun() throws Exception {
+        jobs.remove("broken");
+        reconciler.setDryRun(true);
+
+        ReconcileReport report = reconciler.reconcile(desired(), true);
+
+        assertEquals(1, report.count(Action.UPDATE));
+        assertEquals(1, report.count(Action.CREATE));
+        assertEquals(1, report.count(Action.DELETE));
+        assertEquals(1, report.count(Action.UNCHANGED));
+        assertEquals(0, writes.get());
+        assertTrue(jobs.containsKey("gone"));
+    }
+
+    @Test
+    public void shouldReportFailuresAndGoOn() throws Exception {
+        Map<String, String> desired = desired();
+        desired.put("broken", "<project/>");
+
+        ReconcileReport report = reconciler.reconcile(desired, false);
+
+        assertEquals(1, report.getFailures().size());
+        assertTrue(report.getFailures().containsKey("broken"));
+        assertEquals(Action.UPDATE, report.getResults().get("changed").getAction());
+        assertFalse(report.getResults().containsKey("gone"));
+        assertTrue(jobs.containsKey("gone"));
+        assertEquals(2, writes.get());
+    }
+
+    @Test
+    public void shouldNotDeleteFoldersOrMultibranchProjects() throws Exception {
+        jobs.remove("broken");
+        jobs.put("team", "<com.cloudbees.hudson.plugins.folder.Folder/>");
+        classes.put("team", "com.cloudbees.hudson.plugins.folder.Folder");
+        jobs.put("app", "<org.jenkinsci.plugins.workflow.multibranch.WorkflowMultiBranchProject/>");
+        classes.put("app", "org.jenkinsci.plugins.workflow.multibranch.WorkflowMultiBranchProject");
+
+        ReconcileReport report = reconciler.reconcile(desired(), true);
+
+        assertTrue(report.isSuccessful());
+        assertEquals(1, report.count(Action.DELETE));
+        assertFalse(report.getResults().containsKey("team"));
+        assertFalse(report.getResults().containsKey("app"));
+        assertTrue(jobs.containsKey("team"));
+        assertTrue(jobs.containsKey("app"));
+        assertNull(jobs.get("gone"));
+    }
+
+    @Test
+    public void shouldTellContainersFromJobs() {
+        assertTrue(JobReconciler.isContainer("jenkins.branch.OrganizationFolder"));
+        assertFalse(JobReconciler.isContainer("org.jenkinsci.plugins.workflow.job.WorkflowJob"));
+        assertFalse(JobReconciler.isContainer("hudson.maven.MavenModuleSet"));
+        assertFalse(JobReconciler.isContainer(null));
+    }
+
+    @Test
+    public void shouldIgnoreFormattingOfConfigurations() {
+        assertEquals(JobReconciler.normalize("<project><a>1</a></project>"),
+                JobReconciler.normalize("<?xml version=\"1.0\"?>\r\n<project>\r\n  <a>1</a>\r\n</project>\r\n"));
+    }
+
+    private static Map<String, String> desired() {
+        Map<String, String> desired = new LinkedHashMap<String, String>();
+        desired.put("same", "<project><description>same</description></project>");
+        desired.put("changed", "<project><description>new</description></project>");
+        desired.put("fresh", "<project/>");
+        return desired;
+    }
+
+    private void list(HttpExchange exchange) throws IOException {
+        StringBuilder listing = new StringBuilder("{\"jobs\":[");
+        for (String name : jobs.keySet()) {
+            String itemClass = classes.containsKey(name) ? classes.get(name) : "hudson.model.FreeStyleProject";
+            listing.append(listing.length() > 9 ? "," : "").append("{\"_class\":\"").append(itemClass)
+                    .append("\",\"name\":\"").append(name).append("\"}");
+        }
+        respond(exchange, 200, listing.append("]}").toString());
+    }
+
+    private void job(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        boolean post = "POST".equals(exchange.getRequestMethod());
+        Matcher config = CONFIG.matcher(path);
+        Matcher delete = DELETE.matcher(path);
+        if (config.matches() && config.group(1).equals("broken")) {
+            respond(exchange, 500, "");
+        } else if (config.matches() && post) {
+            writes.incrementAndGet();
+            jobs.put(config.group(1), read(exchange));
+            respond(exchange, 200, "");
+        } else if (config.matches() && jobs.containsKey(config.group(1))) {
+            respond(exchange, 200, jobs.get(config.group(1)));
+        } else if (delete.matches() && post) {
+            writes.incrementAndGet();
+            jobs.remove(delete.group(1));
+            respond(exchange, 200, "");
+        } else {
+            respond(exchange, 404, "");
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins;
+
+import com.offbytwo.jenkins.client.JenkinsHttpClient;
+import com.offbytwo.jenkins.model.BaseModel;
+import com.offbytwo.jenkins.model.Build;
+import com.offbytwo.jenkins.model.QueueItem;
+import com.offbytwo.jenkins.model.QueueReference;
+import com.offbytwo.jenkins.tools.Utils;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class QueueTrackerTest {
+
+    private final FakeClient client = new FakeClient();
+    private final QueueTracker tracker = new QueueTracker(10);
+
+    @After
+    public void tearDown() {
+        tracker.close();
+    }
+
+    @Test
+    public void shouldResolveItemsLeavingQueue() throws Exception {
+        CompletableFuture<Build> first = tracker.track(reference(1));
+        CompletableFuture<Build> second = tracker.track(reference(2));
+        CompletableFuture<Build> waiting = tracker.track(reference(3));
+
+        Build build = first.get(5, TimeUnit.SECONDS);
+        assertEquals(101, build.getNumber());
+        assertSame(client, build.getClient());
+        assertEquals(102, second.get(5, TimeUnit.SECONDS).getNumber());
+        assertFalse(waiting.isDone());
+        assertEquals(2, client.itemRequests.get());
+        assertTrue(client.queueRequests.get() >= 3);
+    }
+
+    @Test
+    public void shouldFailCancelledItem() throws Exception {
+        try {
+            tracker.track(reference(4)).get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void shouldParseQueueItemId() {
+        assertEquals(42, new QueueReference("http://localhost/queue/item/42/").getId());
+        assertEquals(-1, new QueueReference(null).getId());
+    }
+
+    private QueueReference reference(int id) {
+        QueueReference reference = new QueueReference("http://localhost/queue/item/" + id + "/");
+        reference.setClient(client);
+        return reference;
+    }
+
+    /**
+     * Item 1 leaves the queue after 2 polls, item 2 after 3, item 3 never and item 4 is cancelled
+     */
+    private static class FakeClient extends JenkinsHttpClient {
+        private final AtomicInteger queueRequests = new AtomicInteger();
+        private final AtomicInteger itemRequests = new AtomicInteger();
+
+        FakeClient() {
+            super(URI.create("http://localhost/"));
+        }
+
+        @Override
+        public <T extends BaseModel> T get(String path, Class<T> cls) throws IOException {
+            if (cls == QueueTracker.Queue.class) {
+                int polls = queueRequests.incrementAndGet();
+                String items = "{\"id\":3}" + (polls < 2 ? ",{\"id\":1}" : "") + (polls < 3 ? ",{\"id\":2}" : "");
+                return cls.cast(Utils.getJsonMapper().readValue("{\"items\":[" + items + "]}", QueueTracker.Queue.class));
+            }
+            itemRequests.incrementAndGet();
+            int id = Integer.parseInt(path.replaceAll(".*/item/(\\d+)/.*", "$1"));
+            String item = id == 4 ? "{\"id\":4,\"cancelled\":true}" : "{\"id\":" + id + ",\"executable\":{\"number\":"
+                    + (100 + id) + ",\"url\":\"http://localhost/job/trunk/" + (100 + id) + "/\"}}";
+            QueueItem queueItem = Utils.getJsonMapper().readValue(item, QueueItem.class);
+            queueItem.setClient(this);
+            return cls.cast(queueItem);
+        }
+    }
+}
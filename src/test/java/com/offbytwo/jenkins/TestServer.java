@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local HTTP server standing in for Jenkins in tests, answering the routes registered by each test
+ */
+public final class TestServer implements Closeable {
+    private final HttpServer server;
+    private final ExecutorService threads = Executors.newCachedThreadPool();
+
+    public TestServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(threads);
+        server.start();
+    }
+
+    /**
+     * Answer the requests of the paths starting with the given prefix, the longest matching prefix wins
+     *
+     * @return this server
+     */
+    public TestServer route(String prefix, HttpHandler handler) {
+        server.createContext(prefix, handler);
+        return this;
+    }
+
+    /**
+     * @return the root of the server, ex. http://localhost:53124/
+     */
+    public URI uri() {
+        return URI.create(url("/"));
+    }
+
+    /**
+     * @param path absolute path on the server
+     * @return the url of the path
+     */
+    public String url(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        threads.shutdownNow();
+    }
+
+    /**
+     * Answer with a JSON body, or no body if empty
+     */
+    public static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        respond(exchange, status, "application/json", body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Answer and close the connection, so that the client does not reuse a connection of a stopped server
+     */
+    public static void respond(HttpExchange exchange, int status, String contentType, byte[] body)
+            throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.getResponseHeaders().add("Connection", "close");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+        exchange.close();
+    }
+
+    /**
+     * @return the body of the request
+     */
+    public static String read(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        InputStream in = exchange.getRequestBody();
+        byte[] buffer = new byte[1024];
+        for (int count = in.read(buffer); count != -1; count = in.read(buffer)) {
+            body.write(buffer, 0, count);
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Delay a response, ex. to keep requests in flight
+     */
+    public static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
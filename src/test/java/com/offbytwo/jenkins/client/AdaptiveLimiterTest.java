@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveLimiterTest {
+    private static final long MILLI = 1000000;
+    private static final String JOB = "/job/{name}/api/json";
+    private static final String LISTING = "/api/json";
+
+    @Test
+    public void shouldGrowWhileLimitIsReachedAndFast() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 10, 2);
+        limiter.acquire();
+        limiter.acquire();
+        for (int i = 0; i < 10; i++) {
+            limiter.onResponse(JOB, MILLI, 200);
+        }
+        assertTrue(limiter.getLimit() > 2);
+    }
+
+    @Test
+    public void shouldNotGrowWhenLimitIsNotUsed() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 10, 4);
+        limiter.acquire();
+        for (int i = 0; i < 100; i++) {
+            limiter.onResponse(JOB, MILLI, 200);
+        }
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void shouldBackOffOncePerRoundTripOnOverload() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 20, 10);
+        limiter.onResponse(JOB, 50 * MILLI, 503);
+        limiter.onResponse(JOB, 50 * MILLI, 429);
+        assertEquals(9, limiter.getLimit());
+
+        Thread.sleep(2);
+        limiter.onFailure();
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    public void shouldBackOffOnSlowResponses() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 20, 10);
+        limiter.onResponse(JOB, MILLI, 200);
+        limiter.onResponse(JOB, 10 * MILLI, 200);
+        assertEquals(9, limiter.getLimit());
+    }
+
+    @Test
+    public void shouldCompareResponseTimesPerEndpoint() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 20, 10);
+        for (int i = 0; i < 100; i++) {
+            limiter.onResponse(JOB, MILLI, 200);
+            limiter.onResponse(LISTING, 20 * MILLI, 200);
+        }
+        assertEquals(10, limiter.getLimit());
+
+        limiter.onResponse(LISTING, 50 * MILLI, 200);
+        assertEquals(9, limiter.getLimit());
+    }
+
+    @Test
+    public void shouldFollowLastingSlowdown() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 20, 10);
+        limiter.onResponse(JOB, MILLI, 200);
+        for (int i = 0; i < 100; i++) {
+            limiter.onResponse(JOB, 5 * MILLI, 200);
+        }
+        int limit = limiter.getLimit();
+
+        Thread.sleep(10);
+        limiter.onResponse(JOB, 5 * MILLI, 200);
+        assertEquals(limit, limiter.getLimit());
+    }
+
+    @Test
+    public void shouldQueueRequestsOverLimit() throws Exception {
+        final AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1);
+        final CountDownLatch sent = new CountDownLatch(1);
+        limiter.acquire();
+        Thread waiting = new Thread(() -> {
+            try {
+                limiter.acquire();
+                sent.countDown();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        waiting.setDaemon(true);
+        waiting.start();
+
+        assertFalse(sent.await(50, TimeUnit.MILLISECONDS));
+        assertEquals(1, limiter.getQueueDepth());
+        limiter.release();
+        assertTrue(sent.await(5, TimeUnit.SECONDS));
+        assertEquals(0, limiter.getQueueDepth());
+        assertEquals(1, limiter.getInFlight());
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import com.offbytwo.jenkins.TestServer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.offbytwo.jenkins.TestServer.respond;
+
+/**
+ * The crumb issuer of a test server, and the job "test" whose builds are only queued with the current crumb
+ */
+final class CrumbProtectedJob {
+    final AtomicInteger crumbRequests = new AtomicInteger();
+    final AtomicInteger posts = new AtomicInteger();
+    volatile String validCrumb = "first";
+
+    CrumbProtectedJob(TestServer server) {
+        server.route("/crumbIssuer/api/json", exchange -> {
+            crumbRequests.incrementAndGet();
+            respond(exchange, 200, "{\"crumbRequestField\":\"Jenkins-Crumb\",\"crumb\":\"" + validCrumb + "\"}");
+        });
+        server.route("/job/test/build", exchange -> {
+            int post = posts.incrementAndGet();
+            String crumb = exchange.getRequestHeaders().getFirst("Jenkins-Crumb");
+            exchange.getResponseHeaders().add("Location", "http://localhost/queue/item/" + post + "/");
+            respond(exchange, validCrumb.equals(crumb) ? 201 : 403, "");
+        });
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import com.offbytwo.jenkins.model.BuildWithDetails;
+import com.offbytwo.jenkins.model.JobWithDetails;
+import com.offbytwo.jenkins.tools.Utils;
+import org.junit.Test;
+
+import java.net.URI;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class DomainCacheTest {
+
+    private static final URI BUILD = URI.create("http://localhost/job/trunk/1/api/json");
+    private static final URI OTHER_BUILD = URI.create("http://localhost/job/trunk/2/api/json");
+    private static final URI JOB = URI.create("http://localhost/job/trunk/api/json");
+
+    @Test
+    public void shouldKeepCompletedBuilds() throws Exception {
+        DomainCache cache = new DomainCache(1024 * 1024, 100, 1);
+        BuildWithDetails build = build("{\"number\":1,\"building\":false,\"result\":\"SUCCESS\"}");
+        cache.put(BUILD, BuildWithDetails.class, build);
+        Thread.sleep(20);
+
+        assertSame(build, cache.get(BUILD, BuildWithDetails.class));
+        assertEquals(1, cache.getCompletedBuilds());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void shouldExpireBuildsInProgressAndJobs() throws Exception {
+        DomainCache cache = new DomainCache(1024 * 1024, 100, 50);
+        BuildWithDetails build = build("{\"number\":1,\"building\":true}");
+        JobWithDetails job = Utils.getJsonMapper().readValue("{\"name\":\"trunk\"}", JobWithDetails.class);
+        cache.put(BUILD, BuildWithDetails.class, build);
+        cache.put(JOB, JobWithDetails.class, job);
+
+        assertSame(build, cache.get(BUILD, BuildWithDetails.class));
+        assertSame(job, cache.get(JOB, JobWithDetails.class));
+        Thread.sleep(100);
+        assertNull(cache.get(BUILD, BuildWithDetails.class));
+        assertNull(cache.get(JOB, JobWithDetails.class));
+        assertEquals(0, cache.getCompletedBuilds());
+    }
+
+    @Test
+    public void shouldEvictByEstimatedSize() throws Exception {
+        DomainCache cache = new DomainCache(1000, 100, 60000);
+        cache.put(BUILD, BuildWithDetails.class, build("{\"number\":1,\"result\":\"SUCCESS\"}"));
+        cache.put(OTHER_BUILD, BuildWithDetails.class, build("{\"number\":2,\"result\":\"SUCCESS\","
+                + "\"artifacts\":[{\"fileName\":\"a\"},{\"fileName\":\"b\"}]}"));
+
+        assertNull(cache.get(BUILD, BuildWithDetails.class));
+    }
+
+    @Test
+    public void shouldInvalidateJobAndItsBuilds() throws Exception {
+        DomainCache cache = new DomainCache(1024 * 1024, 100, 60000);
+        cache.put(BUILD, BuildWithDetails.class, build("{\"number\":1,\"result\":\"SUCCESS\"}"));
+        cache.put(OTHER_BUILD, BuildWithDetails.class, build("{\"number\":2,\"building\":true}"));
+
+        cache.invalidate("http://localhost/job/trunk", new JenkinsHttpClient(URI.create("http://localhost/")));
+
+        assertNull(cache.get(BUILD, BuildWithDetails.class));
+        assertNull(cache.get(OTHER_BUILD, BuildWithDetails.class));
+    }
+
+    private static BuildWithDetails build(String json) throws Exception {
+        return Utils.getJsonMapper().readValue(json, BuildWithDetails.class);
+    }
+}
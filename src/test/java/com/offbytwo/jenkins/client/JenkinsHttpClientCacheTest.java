@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import com.offbytwo.jenkins.JenkinsServer;
+import com.offbytwo.jenkins.TestServer;
+import com.offbytwo.jenkins.model.Build;
+import com.offbytwo.jenkins.model.BuildWithDetails;
+import com.offbytwo.jenkins.model.JobWithDetails;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.offbytwo.jenkins.TestServer.pause;
+import static com.offbytwo.jenkins.TestServer.respond;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class JenkinsHttpClientCacheTest {
+    private TestServer server;
+    private JenkinsHttpClient client;
+
+    private volatile String displayName = "first";
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final AtomicInteger buildRequests = new AtomicInteger();
+    private final AtomicInteger slowRequests = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new TestServer();
+        server.route("/job/cached/api/json", exchange ->
+                respond(exchange, 200, "{\"name\":\"cached\",\"displayName\":\"" + displayName + "\"}"));
+        server.route("/job/cached/1/api/json", exchange -> {
+            buildRequests.incrementAndGet();
+            respond(exchange, 200, "{\"number\":1,\"building\":false,\"result\":\"SUCCESS\"}");
+        });
+        server.route("/job/tagged/api/json", exchange -> {
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                respond(exchange, 304, "");
+            } else {
+                respond(exchange, 200, "{\"name\":\"tagged\"}");
+            }
+        });
+        server.route("/job/slow/api/json", exchange -> {
+            slowRequests.incrementAndGet();
+            pause(300);
+            respond(exchange, 200, "{\"name\":\"slow\"}");
+        });
+        server.route("/job/trunk/api/json", exchange -> {
+            pause(5);
+            respond(exchange, 200, "{\"name\":\"trunk\",\"builds\":[{\"number\":2,\"url\":\"http://localhost/job/trunk/2/\"},"
+                    + "{\"number\":1,\"url\":\"http://localhost/job/trunk/1/\"}]}");
+        });
+        client = new JenkinsHttpClient(server.uri());
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void shouldReuseModelOfUnchangedResponse() throws Exception {
+        ResponseCache cache = new ResponseCache(10, 60000);
+        client.setResponseCache(cache);
+
+        JobWithDetails first = client.get("/job/cached", JobWithDetails.class);
+        JobWithDetails second = client.get("/job/cached", JobWithDetails.class);
+        assertSame(first, second);
+
+        displayName = "second";
+        JobWithDetails third = client.get("/job/cached", JobWithDetails.class);
+        assertNotSame(first, third);
+        assertEquals("second", third.getDisplayName());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void shouldRevalidateWithEtag() throws Exception {
+        ResponseCache cache = new ResponseCache(10, 60000);
+        client.setResponseCache(cache);
+
+        JobWithDetails first = client.get("/job/tagged", JobWithDetails.class);
+        JobWithDetails second = client.get("/job/tagged", JobWithDetails.class);
+
+        assertSame(first, second);
+        assertEquals(1, notModified.get());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void shouldShareRevalidatedJobBetweenThreads() throws Exception {
+        usePooledClient();
+        ResponseCache cache = new ResponseCache(10, 60000);
+        client.setResponseCache(cache);
+        JenkinsServer jenkins = new JenkinsServer(client);
+
+        List<Build> builds = jenkins.getJob("trunk").getBuilds();
+        assertSame(builds, jenkins.getJob("trunk").getBuilds());
+        getBuildsConcurrently();
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void shouldFetchCompletedBuildOnce() throws Exception {
+        client.setDomainCache(new DomainCache(1024 * 1024, 100, 1000));
+        Build build = new Build(1, client.correctPath("/job/cached/1/").toString());
+        build.setClient(client);
+
+        BuildWithDetails first = build.details();
+        BuildWithDetails second = build.details();
+
+        assertSame(first, second);
+        assertEquals(1, buildRequests.get());
+    }
+
+    @Test
+    public void shouldShareCachedJobBetweenThreads() throws Exception {
+        usePooledClient();
+        client.setDomainCache(new DomainCache(1024 * 1024, 100, 60000));
+        JenkinsServer jenkins = new JenkinsServer(client);
+
+        List<Build> builds = jenkins.getJob("trunk").getBuilds();
+        assertSame(builds, jenkins.getJob("trunk").getBuilds());
+        getBuildsConcurrently();
+    }
+
+    @Test
+    public void shouldCoalesceConcurrentIdenticalRequests() throws Exception {
+        usePooledClient();
+        client.setCoalesceRequests(true);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<JobWithDetails>> jobs = new ArrayList<Future<JobWithDetails>>();
+        for (int i = 0; i < 8; i++) {
+            jobs.add(threads.submit(new Callable<JobWithDetails>() {
+                @Override
+                public JobWithDetails call() throws Exception {
+                    start.await();
+                    return client.get("/job/slow", JobWithDetails.class);
+                }
+            }));
+        }
+        start.countDown();
+
+        JobWithDetails first = jobs.get(0).get();
+        for (Future<JobWithDetails> job : jobs) {
+            assertSame(first, job.get());
+        }
+        threads.shutdown();
+        assertEquals(1, slowRequests.get());
+        assertEquals(7, client.getCoalescedRequests());
+    }
+
+    @Test
+    public void shouldShareCoalescedJobBetweenThreads() throws Exception {
+        usePooledClient();
+        client.setCoalesceRequests(true);
+
+        getBuildsConcurrently();
+        assertTrue(client.getCoalescedRequests() > 0);
+    }
+
+    private void usePooledClient() {
+        client.close();
+        client = new JenkinsHttpClient(server.uri(), new ConnectionPoolSettings(10, 10));
+    }
+
+    /**
+     * Read the builds of the same job from many threads, as a job shared through a cache is
+     */
+    private void getBuildsConcurrently() throws Exception {
+        final JenkinsServer jenkins = new JenkinsServer(client);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        List<Future<Void>> readers = new ArrayList<Future<Void>>();
+        for (int i = 0; i < 8; i++) {
+            readers.add(threads.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int i = 0; i < 200; i++) {
+                        List<Build> builds = jenkins.getJob("trunk").getBuilds();
+                        assertEquals(2, builds.size());
+                        assertSame(client, builds.get(0).getClient());
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> reader : readers) {
+            reader.get();
+        }
+        threads.shutdown();
+    }
+}
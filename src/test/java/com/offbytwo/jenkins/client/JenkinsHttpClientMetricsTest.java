@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import com.offbytwo.jenkins.TestServer;
+import com.offbytwo.jenkins.client.metrics.EndpointMetrics;
+import com.offbytwo.jenkins.client.metrics.HistogramRecorder;
+import com.offbytwo.jenkins.client.metrics.RequestEvent;
+import com.offbytwo.jenkins.client.metrics.RequestListener;
+import com.offbytwo.jenkins.model.Crumb;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class JenkinsHttpClientMetricsTest {
+    private TestServer server;
+    private JenkinsHttpClient client;
+    private final List<RequestEvent> events = new ArrayList<RequestEvent>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new TestServer();
+        new CrumbProtectedJob(server);
+        client = new JenkinsHttpClient(server.uri());
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void shouldReportEveryRequestToListener() throws Exception {
+        client.setRequestListener(recordEvents());
+        client.get("/crumbIssuer", Crumb.class);
+        client.post("/job/test/build");
+
+        assertEquals(3, events.size());
+        RequestEvent get = events.get(0);
+        assertEquals("GET", get.getMethod());
+        assertEquals("/crumbIssuer/api/json", get.getEndpoint());
+        assertEquals(200, get.getStatus());
+        assertTrue(get.getBytesRead() > 0);
+        assertTrue(get.getParseNanos() > 0);
+        assertTrue(get.getTimeToFirstByteNanos() <= get.getTotalNanos());
+
+        RequestEvent post = events.get(2);
+        assertEquals("POST", post.getMethod());
+        assertEquals("/job/{name}/build/api/json", post.getEndpoint());
+        assertEquals(201, post.getStatus());
+        assertTrue(post.getCrumbNanos() > 0);
+    }
+
+    @Test
+    public void shouldRecordHistogramsPerEndpoint() throws Exception {
+        HistogramRecorder recorder = new HistogramRecorder();
+        client.setRequestListener(recorder);
+        for (int i = 0; i < 5; i++) {
+            client.get("/crumbIssuer", Crumb.class);
+        }
+
+        EndpointMetrics metrics = recorder.getEndpoint("GET /crumbIssuer/api/json");
+        assertNotNull(metrics);
+        assertEquals(5, metrics.getRequests());
+        assertEquals(0, metrics.getErrors());
+        assertEquals(5, metrics.getLatency().getCount());
+        assertTrue(metrics.getLatency().getValueAtPercentile(99) > 0);
+    }
+
+    @Test
+    public void shouldReportThrottlingAsWaitNotLatency() throws Exception {
+        client.setRequestListener(recordEvents());
+        client.setRateLimiter(new RateLimiter(4, 1));
+
+        client.get("/crumbIssuer", Crumb.class);
+        client.get("/crumbIssuer", Crumb.class);
+
+        RequestEvent throttled = events.get(1);
+        assertTrue(throttled.getWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(throttled.getTotalNanos() < throttled.getWaitNanos());
+        assertTrue(throttled.getTimeToFirstByteNanos() <= throttled.getTotalNanos());
+    }
+
+    private RequestListener recordEvents() {
+        return new RequestListener() {
+            @Override
+            public void onRequest(RequestEvent event) {
+                events.add(event);
+            }
+        };
+    }
+}
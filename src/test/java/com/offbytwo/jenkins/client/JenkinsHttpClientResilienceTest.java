@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import com.offbytwo.jenkins.TestServer;
+import com.offbytwo.jenkins.model.JobWithDetails;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.protocol.HttpContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.offbytwo.jenkins.TestServer.pause;
+import static com.offbytwo.jenkins.TestServer.respond;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JenkinsHttpClientResilienceTest {
+    private TestServer server;
+    private CrumbProtectedJob job;
+    private JenkinsHttpClient client;
+
+    private final AtomicInteger flakyRequests = new AtomicInteger();
+    private final AtomicInteger downRequests = new AtomicInteger();
+    private final AtomicInteger hangingRequests = new AtomicInteger();
+    private volatile int hangs = 2;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new TestServer();
+        job = new CrumbProtectedJob(server);
+        server.route("/job/cached/api/json", exchange -> respond(exchange, 200, "{\"name\":\"cached\"}"));
+        server.route("/job/flaky/api/json", exchange -> {
+            int attempt = flakyRequests.incrementAndGet();
+            respond(exchange, attempt < 3 ? 503 : 200, attempt < 3 ? "" : "{\"name\":\"flaky\"}");
+        });
+        server.route("/job/hanging/api/json", exchange -> {
+            if (hangingRequests.incrementAndGet() <= hangs) {
+                pause(500);
+            }
+            respond(exchange, 200, "{\"name\":\"hanging\"}");
+        });
+        server.route("/job/down", exchange -> {
+            downRequests.incrementAndGet();
+            respond(exchange, 503, "");
+        });
+        client = new JenkinsHttpClient(server.uri());
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void shouldRetryIdempotentRequestsOnly() throws Exception {
+        RetryPolicy retryPolicy = new RetryPolicy(3, 1, 10);
+        client.setRetryPolicy(retryPolicy);
+
+        assertEquals("flaky", client.get("/job/flaky", JobWithDetails.class).getName());
+        assertEquals(3, flakyRequests.get());
+        assertEquals(2, retryPolicy.getRetries());
+
+        try {
+            client.post("/job/down/build");
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals(503, e.getStatusCode());
+        }
+        assertEquals(1, downRequests.get());
+    }
+
+    @Test
+    public void shouldFailFastWhileCircuitIsOpen() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(2, 50);
+        final AtomicInteger probes = new AtomicInteger();
+        breaker.setProbe(new CircuitBreaker.Probe() {
+            @Override
+            public boolean isUp() {
+                probes.incrementAndGet();
+                return true;
+            }
+        });
+        client.setCircuitBreaker(breaker);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                client.get("/job/down", JobWithDetails.class);
+                fail();
+            } catch (HttpResponseException e) {
+                assertEquals(503, e.getStatusCode());
+            }
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        try {
+            client.get("/job/down", JobWithDetails.class);
+            fail();
+        } catch (CircuitBreakerOpenException e) {
+            assertEquals(2, downRequests.get());
+            assertEquals(1, breaker.getRejected());
+        }
+
+        Thread.sleep(60);
+        assertEquals("cached", client.get("/job/cached", JobWithDetails.class).getName());
+        assertEquals(1, probes.get());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void shouldRetryTimeouts() throws Exception {
+        useClient(clientTimingOutAfter(100));
+        RetryPolicy retryPolicy = new RetryPolicy(3, 1, 10);
+        client.setRetryPolicy(retryPolicy);
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 64, 8);
+        client.setConcurrencyLimiter(limiter);
+
+        assertEquals("hanging", client.get("/job/hanging", JobWithDetails.class).getName());
+        assertEquals(3, hangingRequests.get());
+        assertEquals(2, retryPolicy.getRetries());
+        assertTrue(limiter.getLimit() < 8);
+    }
+
+    @Test
+    public void shouldReopenCircuitWhenTrialTimesOut() throws Exception {
+        useClient(clientTimingOutAfter(100));
+        CircuitBreaker breaker = openCircuit();
+        hangs = Integer.MAX_VALUE;
+
+        try {
+            client.get("/job/hanging", JobWithDetails.class);
+            fail();
+        } catch (SocketTimeoutException e) {
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        }
+        try {
+            client.get("/job/cached", JobWithDetails.class);
+            fail();
+        } catch (CircuitBreakerOpenException e) {
+            assertEquals(1, breaker.getRejected());
+        }
+    }
+
+    @Test
+    public void shouldReopenCircuitWhenTrialFails() throws Exception {
+        final AtomicBoolean broken = new AtomicBoolean();
+        DefaultHttpClient httpClient = new DefaultHttpClient();
+        httpClient.addRequestInterceptor(new HttpRequestInterceptor() {
+            @Override
+            public void process(HttpRequest request, HttpContext context) {
+                if (broken.get()) {
+                    throw new IllegalStateException("broken");
+                }
+            }
+        });
+        useClient(httpClient);
+        CircuitBreaker breaker = openCircuit();
+        broken.set(true);
+
+        try {
+            client.get("/job/cached", JobWithDetails.class);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        }
+
+        broken.set(false);
+        Thread.sleep(110);
+        assertEquals("cached", client.get("/job/cached", JobWithDetails.class).getName());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void shouldReleasePermitOfEveryRequest() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1);
+        client.setConcurrencyLimiter(limiter);
+        client.setRetryPolicy(new RetryPolicy(3, 1, 10));
+        job.validCrumb = "second";
+
+        client.get("/job/cached", JobWithDetails.class);
+        client.get("/job/flaky", JobWithDetails.class);
+        client.post("/job/test/build");
+        assertNull(client.get("/job/missing", JobWithDetails.class));
+        try {
+            client.get("/job/down", JobWithDetails.class);
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals(503, e.getStatusCode());
+        }
+
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test(timeout = 10000)
+    public void shouldRefreshCrumbWithoutHoldingPermit() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1);
+        client.setConcurrencyLimiter(limiter);
+        client.post("/job/test/build");
+        job.validCrumb = "second";
+
+        client.post("/job/test/build");
+
+        assertEquals(2, job.crumbRequests.get());
+        assertEquals(3, job.posts.get());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void shouldReleaseSchedulerSlotOfEveryRequest() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(1);
+        client.setRequestScheduler(scheduler);
+        client.setConcurrencyLimiter(new AdaptiveLimiter(1, 1, 1));
+        client.setRetryPolicy(new RetryPolicy(3, 1, 10));
+        job.validCrumb = "second";
+
+        RequestScheduler.withPriority(RequestScheduler.Priority.INTERACTIVE,
+                () -> client.get("/job/cached", JobWithDetails.class));
+        client.get("/job/flaky", JobWithDetails.class);
+        client.post("/job/test/build");
+        assertNull(client.get("/job/missing", JobWithDetails.class));
+
+        assertEquals(1, scheduler.getGranted(RequestScheduler.Priority.INTERACTIVE));
+        assertTrue(scheduler.getGranted(RequestScheduler.Priority.NORMAL) >= 5);
+        for (RequestScheduler.Priority priority : RequestScheduler.Priority.values()) {
+            assertEquals(0, scheduler.getInFlight(priority));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void shouldRefreshCrumbWithoutHoldingSchedulerSlot() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(1);
+        client.setRequestScheduler(scheduler);
+        client.post("/job/test/build");
+        job.validCrumb = "second";
+
+        client.post("/job/test/build");
+
+        assertEquals(2, job.crumbRequests.get());
+        assertEquals(3, job.posts.get());
+        assertEquals(0, scheduler.getInFlight(RequestScheduler.Priority.NORMAL));
+    }
+
+    @Test
+    public void shouldThrottleRequestsOverRate() throws Exception {
+        RateLimiter limiter = new RateLimiter(50, 1);
+        client.setRateLimiter(limiter);
+
+        client.get("/job/cached", JobWithDetails.class);
+        client.get("/job/cached", JobWithDetails.class);
+        client.post("/job/test/build");
+
+        assertTrue(limiter.getThrottled(RateLimiter.EndpointClass.READ) >= 1);
+        assertTrue(limiter.getThrottled(RateLimiter.EndpointClass.WRITE) >= 1);
+        assertTrue(limiter.getWaitNanos() > 0);
+    }
+
+    /**
+     * Open a breaker of one failure, and wait until the next request is its trial
+     */
+    private CircuitBreaker openCircuit() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 100);
+        client.setCircuitBreaker(breaker);
+        try {
+            client.get("/job/down", JobWithDetails.class);
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        }
+        Thread.sleep(110);
+        return breaker;
+    }
+
+    private static DefaultHttpClient clientTimingOutAfter(int millis) {
+        DefaultHttpClient httpClient = new DefaultHttpClient();
+        HttpConnectionParams.setSoTimeout(httpClient.getParams(), millis);
+        return httpClient;
+    }
+
+    private void useClient(DefaultHttpClient httpClient) {
+        client.close();
+        client = new JenkinsHttpClient(server.uri(), httpClient);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import com.offbytwo.jenkins.TestServer;
+import com.offbytwo.jenkins.model.Build;
+import com.offbytwo.jenkins.model.ConsoleTailer;
+import com.offbytwo.jenkins.model.Job;
+import com.offbytwo.jenkins.model.QueueReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static com.offbytwo.jenkins.TestServer.respond;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JenkinsHttpClientTest {
+    private static final String LOG = "line1\nline2\nline3\n";
+
+    private TestServer server;
+    private CrumbProtectedJob job;
+    private JenkinsHttpClient client;
+    private final AtomicInteger logRequests = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new TestServer();
+        job = new CrumbProtectedJob(server);
+        server.route("/job/log/1/logText/progressiveText", exchange -> {
+            // every request makes one more line of the log available
+            int available = Math.min(LOG.length(), logRequests.incrementAndGet() * 6);
+            String query = exchange.getRequestURI().getQuery();
+            int start = Integer.parseInt(query.substring(query.indexOf("start=") + 6));
+            exchange.getResponseHeaders().add("X-Text-Size", String.valueOf(available));
+            if (available < LOG.length()) {
+                exchange.getResponseHeaders().add("X-More-Data", "true");
+            }
+            respond(exchange, 200, LOG.substring(start, available));
+        });
+        client = new JenkinsHttpClient(server.uri());
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void shouldReuseCrumbAcrossPosts() throws Exception {
+        client.post("/job/test/build");
+        client.post("/job/test/build");
+        client.post("/job/test/build");
+
+        assertEquals(1, job.crumbRequests.get());
+        assertEquals(3, job.posts.get());
+    }
+
+    @Test
+    public void shouldRefreshCrumbOnceWhenRejected() throws Exception {
+        client.post("/job/test/build");
+        job.validCrumb = "second";
+        client.post("/job/test/build");
+
+        assertEquals(2, job.crumbRequests.get());
+        assertEquals(3, job.posts.get());
+    }
+
+    @Test
+    public void shouldReturnQueueItemOfTriggeredBuild() throws Exception {
+        Job test = new Job("test", client.correctPath("/job/test/").toString());
+        test.setClient(client);
+
+        QueueReference reference = test.build();
+
+        assertEquals("http://localhost/queue/item/1/", reference.getQueueItemUrl());
+        assertEquals(1, reference.getId());
+    }
+
+    @Test
+    public void shouldTailConsoleFromLastOffset() throws Exception {
+        Build build = new Build(1, client.correctPath("/job/log/1/").toString());
+        build.setClient(client);
+        ConsoleTailer tailer = new ConsoleTailer(build);
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        final List<Integer> chunks = new ArrayList<Integer>();
+
+        assertTrue(tailer.poll(Channels.newChannel(log)));
+        assertEquals("line1\n", log.toString("UTF-8"));
+        assertEquals(6, tailer.getOffset());
+
+        tailer.follow(new Consumer<ByteBuffer>() {
+            @Override
+            public void accept(ByteBuffer buffer) {
+                chunks.add(buffer.remaining());
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                log.write(bytes, 0, bytes.length);
+            }
+        }, 1);
+
+        assertEquals(LOG, log.toString("UTF-8"));
+        assertEquals(3, logRequests.get());
+        assertEquals(Arrays.asList(6, 6), chunks);
+        assertFalse(tailer.hasMoreData());
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.offbytwo.jenkins.model.Job;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JsonArrayReaderTest {
+
+    private static final String MAIN_VIEW = "{\"mode\":\"NORMAL\","
+            + "\"primaryView\":{\"name\":\"All\",\"jobs\":[{\"name\":\"nested\"}]},"
+            + "\"jobs\":[{\"name\":\"first\",\"url\":\"http://localhost/job/first/\",\"color\":\"blue\"},"
+            + "{\"name\":\"second\",\"url\":\"http://localhost/job/second/\"},"
+            + "{\"name\":\"third\",\"url\":\"http://localhost/job/third/\"}],"
+            + "\"useCrumbs\":true}";
+
+    private final List<String> names = new ArrayList<String>();
+
+    @Test
+    public void shouldVisitEveryElementOfTopLevelArray() throws Exception {
+        boolean completed = JsonArrayReader.read(json(MAIN_VIEW), "jobs", Job.class, collect(Integer.MAX_VALUE));
+
+        assertTrue(completed);
+        assertEquals(3, names.size());
+        assertEquals("first", names.get(0));
+        assertEquals("third", names.get(2));
+    }
+
+    @Test
+    public void shouldStopWhenVisitorDeclines() throws Exception {
+        boolean completed = JsonArrayReader.read(json(MAIN_VIEW), "jobs", Job.class, collect(2));
+
+        assertFalse(completed);
+        assertEquals(2, names.size());
+    }
+
+    @Test
+    public void shouldIgnoreMissingField() throws Exception {
+        boolean completed = JsonArrayReader.read(json("{\"mode\":\"NORMAL\"}"), "jobs", Job.class, collect(10));
+
+        assertTrue(completed);
+        assertEquals(0, names.size());
+    }
+
+    @Test
+    public void shouldSkipNullElements() throws Exception {
+        String jobs = "{\"jobs\":[null,{\"name\":\"first\"},null,{\"name\":\"second\"}]}";
+
+        boolean completed = JsonArrayReader.read(json(jobs), "jobs", Job.class, collect(10));
+
+        assertTrue(completed);
+        assertEquals(2, names.size());
+        assertEquals("second", names.get(1));
+    }
+
+    @Test
+    public void shouldRejectElementsWhichAreNotObjects() throws Exception {
+        try {
+            JsonArrayReader.read(json("{\"jobs\":[{\"name\":\"first\"},\"second\"]}"), "jobs", Job.class, collect(10));
+            fail();
+        } catch (JsonParseException e) {
+            assertTrue(e.getMessage().contains("jobs"));
+        }
+        assertEquals(1, names.size());
+    }
+
+    private ModelVisitor<Job> collect(final int limit) {
+        return new ModelVisitor<Job>() {
+            @Override
+            public boolean visit(Job job) throws IOException {
+                names.add(job.getName());
+                return names.size() < limit;
+            }
+        };
+    }
+
+    private static InputStream json(String content) throws IOException {
+        return new ByteArrayInputStream(content.getBytes("UTF-8"));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import com.offbytwo.jenkins.TestServer;
+import com.offbytwo.jenkins.model.JobWithDetails;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.offbytwo.jenkins.TestServer.pause;
+import static com.offbytwo.jenkins.TestServer.respond;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PooledJenkinsHttpClientTest {
+    private static final String MONITOR = "jenkins-client-idle-connection-monitor";
+
+    private TestServer server;
+    private final ExecutorService callers = Executors.newFixedThreadPool(8);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final Set<String> authorizations = new CopyOnWriteArraySet<String>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new TestServer();
+        server.route("/job/test/api/json", exchange -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            authorizations.add(authorization == null ? "none" : authorization);
+            pause(100);
+            inFlight.decrementAndGet();
+            respond(exchange, 200, "{\"name\":\"test\"}");
+        });
+    }
+
+    @After
+    public void tearDown() {
+        callers.shutdownNow();
+        server.close();
+    }
+
+    @Test
+    public void shouldSendConcurrentRequestsUpToPoolSize() throws Exception {
+        JenkinsHttpClient client = new JenkinsHttpClient(server.uri(), new ConnectionPoolSettings(4, 4));
+        try {
+            for (JobWithDetails job : getConcurrently(client, 12)) {
+                assertEquals("test", job.getName());
+            }
+            assertEquals(4, maxInFlight.get());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void shouldAuthenticateEveryConcurrentRequest() throws Exception {
+        JenkinsHttpClient client = new JenkinsHttpClient(server.uri(), "user", "token", new ConnectionPoolSettings(4, 4));
+        try {
+            assertEquals(8, getConcurrently(client, 8).size());
+            assertEquals(1, authorizations.size());
+            assertTrue(authorizations.iterator().next().startsWith("Basic "));
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void shouldStopIdleConnectionMonitorOnClose() throws Exception {
+        int monitors = monitors();
+        JenkinsHttpClient client = new JenkinsHttpClient(server.uri(), new ConnectionPoolSettings(4, 4));
+        assertEquals(monitors + 1, monitors());
+        client.get("/job/test", JobWithDetails.class);
+
+        client.close();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (monitors() > monitors && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(monitors, monitors());
+        try {
+            client.get("/job/test", JobWithDetails.class);
+            fail();
+        } catch (IllegalStateException e) {
+            // the connection manager is shut down
+        }
+    }
+
+    private List<JobWithDetails> getConcurrently(final JenkinsHttpClient client, int count) throws Exception {
+        List<Future<JobWithDetails>> futures = new ArrayList<Future<JobWithDetails>>();
+        for (int i = 0; i < count; i++) {
+            futures.add(callers.submit(new Callable<JobWithDetails>() {
+                @Override
+                public JobWithDetails call() throws Exception {
+                    return client.get("/job/test", JobWithDetails.class);
+                }
+            }));
+        }
+        List<JobWithDetails> jobs = new ArrayList<JobWithDetails>();
+        for (Future<JobWithDetails> future : futures) {
+            jobs.add(future.get());
+        }
+        return jobs;
+    }
+
+    private static int monitors() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals(MONITOR) && thread.isAlive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import com.offbytwo.jenkins.model.BaseModel;
+import com.offbytwo.jenkins.model.Build;
+import com.offbytwo.jenkins.model.BuildWithDetails;
+import com.offbytwo.jenkins.model.Job;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.apache.commons.lang.StringUtils.join;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProjectionTest {
+
+    @Test
+    public void shouldEncodeTreeInQueryString() {
+        Projection projection = Projection.of("lastBuild[number,result]");
+        assertEquals("tree=lastBuild%5Bnumber%2Cresult%5D", projection.toQueryString());
+    }
+
+    @Test
+    public void shouldAppendDepth() {
+        Projection projection = Projection.of("jobs[name]").withDepth(2);
+        assertEquals("/view/All?tree=jobs%5Bname%5D&depth=2", projection.appendTo("/view/All"));
+    }
+
+    @Test
+    public void shouldKeepExistingQueryString() {
+        Projection projection = Projection.of("number");
+        assertEquals("/job/trunk?foo=bar&tree=number", projection.appendTo("/job/trunk?foo=bar"));
+    }
+
+    @Test
+    public void shouldDeriveTreeFromModelClass() {
+        assertEquals(fields("name", "lastBuild[number,url]", "builds[number,url]"),
+                fields(Projection.forClass(SlimJob.class).getTree()));
+    }
+
+    @Test
+    public void shouldProjectSelfReferencingModelsOneLevelDeep() {
+        assertEquals(fields("name", "children[name]"), fields(Projection.forClass(Folder.class).getTree()));
+    }
+
+    @Test
+    public void shouldRequestPropertiesOfUntypedFields() {
+        Set<String> fields = fields(Projection.forClass(BuildWithDetails.class).getTree());
+        assertTrue(fields.contains("actions[*[*[*]]]"));
+        assertTrue(fields.contains("result"));
+        assertTrue(fields.contains("number"));
+    }
+
+    @Test
+    public void shouldUseNameOfFieldInResponse() {
+        assertEquals(fields("_class", "name", "url"), fields(Projection.forClass(Job.class).getTree()));
+    }
+
+    /**
+     * @return the top level fields of a tree, in any order, with their sub-fields sorted
+     */
+    private static Set<String> fields(String... tree) {
+        Set<String> fields = new HashSet<String>();
+        for (String part : tree) {
+            for (String field : split(part)) {
+                int bracket = field.indexOf('[');
+                if (bracket < 0 || field.startsWith("*", bracket + 1)) {
+                    fields.add(field);
+                } else {
+                    List<String> nested = new ArrayList<String>(fields(field.substring(bracket + 1,
+                            field.length() - 1)));
+                    Collections.sort(nested);
+                    fields.add(field.substring(0, bracket) + "[" + join(nested, ",") + "]");
+                }
+            }
+        }
+        return fields;
+    }
+
+    private static List<String> split(String tree) {
+        List<String> fields = new ArrayList<String>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < tree.length(); i++) {
+            char c = tree.charAt(i);
+            if (c == '[') {
+                depth++;
+            } else if (c == ']') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                fields.add(tree.substring(start, i));
+                start = i + 1;
+            }
+        }
+        fields.add(tree.substring(start));
+        return fields;
+    }
+
+    static class SlimJob extends BaseModel {
+        String name;
+        Build lastBuild;
+        List<Build> builds;
+    }
+
+    static class Folder extends BaseModel {
+        String name;
+        List<Folder> children;
+    }
+}
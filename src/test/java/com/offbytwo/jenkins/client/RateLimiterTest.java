@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import com.offbytwo.jenkins.client.RateLimiter.EndpointClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimiterTest {
+
+    @Test
+    public void shouldAllowBurstThenSpaceRequests() throws Exception {
+        RateLimiter limiter = new RateLimiter(20, 3);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.acquire("GET", "/job/test/api/json"));
+        }
+        long started = System.nanoTime();
+        assertTrue(limiter.acquire("GET", "/job/test/api/json") > 0);
+
+        assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(40));
+        assertEquals(1, limiter.getThrottled(EndpointClass.READ));
+        assertTrue(limiter.getWaitNanos(EndpointClass.READ) > 0);
+        assertEquals(limiter.getWaitNanos(EndpointClass.READ), limiter.getWaitNanos());
+    }
+
+    @Test
+    public void shouldLimitClassOnTopOfServer() throws Exception {
+        RateLimiter limiter = new RateLimiter(1000, 100);
+        limiter.setLimit(EndpointClass.WRITE, 10, 1);
+
+        assertEquals(0, limiter.acquire("POST", "/job/test/config.xml"));
+        assertEquals(0, limiter.acquire("GET", "/job/test/api/json"));
+        assertTrue(limiter.acquire("POST", "/job/other/config.xml") > TimeUnit.MILLISECONDS.toNanos(50));
+
+        assertEquals(1, limiter.getThrottled(EndpointClass.WRITE));
+        assertEquals(0, limiter.getThrottled(EndpointClass.READ));
+
+        limiter.removeLimit(EndpointClass.WRITE);
+        assertEquals(0, limiter.acquire("POST", "/job/test/config.xml"));
+    }
+
+    @Test
+    public void shouldShareTokensBetweenThreads() throws Exception {
+        final RateLimiter limiter = new RateLimiter(200, 1);
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            long started = System.nanoTime();
+            List<Future<Long>> requests = new ArrayList<Future<Long>>();
+            for (int i = 0; i < 20; i++) {
+                requests.add(threads.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        return limiter.acquire("GET", "/api/json");
+                    }
+                }));
+            }
+            for (Future<Long> request : requests) {
+                request.get();
+            }
+            // 19 intervals of 5ms after the first token
+            assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(90));
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldClassifyEndpoints() {
+        assertEquals(EndpointClass.READ, EndpointClass.of("GET", "/job/test/config.xml"));
+        assertEquals(EndpointClass.READ, EndpointClass.of("HEAD", "/job/test/1/artifact/a.jar"));
+        assertEquals(EndpointClass.WRITE, EndpointClass.of("POST", "/job/test/config.xml"));
+        assertEquals(EndpointClass.WRITE, EndpointClass.of("POST", "/createItem"));
+        assertEquals(EndpointClass.SCRIPT, EndpointClass.of("POST", "/jenkins/scriptText"));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client;
+
+import com.offbytwo.jenkins.client.RequestScheduler.Priority;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RequestSchedulerTest {
+
+    @Test
+    public void shouldSendInteractiveRequestsAheadOfBulk() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(1);
+        List<Priority> sent = Collections.synchronizedList(new ArrayList<Priority>());
+        scheduler.acquire(Priority.BULK);
+        CountDownLatch done = new CountDownLatch(4);
+        for (int i = 0; i < 3; i++) {
+            send(scheduler, Priority.BULK, sent, done);
+        }
+        awaitQueued(scheduler, Priority.BULK, 3);
+        send(scheduler, Priority.INTERACTIVE, sent, done);
+        awaitQueued(scheduler, Priority.INTERACTIVE, 1);
+
+        scheduler.release(Priority.BULK);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(Priority.INTERACTIVE, Priority.BULK, Priority.BULK, Priority.BULK), sent);
+    }
+
+    @Test
+    public void shouldShareCapacityByWeight() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(1);
+        List<Priority> sent = Collections.synchronizedList(new ArrayList<Priority>());
+        scheduler.acquire(Priority.INTERACTIVE);
+        CountDownLatch done = new CountDownLatch(14);
+        for (int i = 0; i < 7; i++) {
+            send(scheduler, Priority.BULK, sent, done);
+        }
+        awaitQueued(scheduler, Priority.BULK, 7);
+        for (int i = 0; i < 7; i++) {
+            send(scheduler, Priority.NORMAL, sent, done);
+        }
+        awaitQueued(scheduler, Priority.NORMAL, 7);
+
+        scheduler.release(Priority.INTERACTIVE);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        // four normal requests for one bulk request while both are waiting
+        assertEquals(Arrays.asList(Priority.NORMAL, Priority.BULK, Priority.NORMAL, Priority.NORMAL,
+                Priority.NORMAL, Priority.NORMAL, Priority.BULK), sent.subList(0, 7));
+    }
+
+    @Test
+    public void shouldCapEachClass() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(4);
+        scheduler.setMaxInFlight(Priority.BULK, 1);
+        List<Priority> sent = Collections.synchronizedList(new ArrayList<Priority>());
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.acquire(Priority.BULK);
+        send(scheduler, Priority.BULK, sent, done);
+        awaitQueued(scheduler, Priority.BULK, 1);
+
+        scheduler.acquire(Priority.NORMAL);
+        assertEquals(1, scheduler.getInFlight(Priority.NORMAL));
+        assertFalse(done.await(50, TimeUnit.MILLISECONDS));
+
+        scheduler.release(Priority.BULK);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldFollowLimitOfConcurrencyLimiter() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(8);
+        scheduler.setLimiter(new AdaptiveLimiter(1, 8, 1));
+        List<Priority> sent = Collections.synchronizedList(new ArrayList<Priority>());
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.acquire(Priority.NORMAL);
+        send(scheduler, Priority.NORMAL, sent, done);
+
+        awaitQueued(scheduler, Priority.NORMAL, 1);
+        scheduler.release(Priority.NORMAL);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldRestorePriorityOfThread() throws Exception {
+        assertEquals(Priority.NORMAL, RequestScheduler.currentPriority());
+        Priority inner = RequestScheduler.withPriority(Priority.BULK,
+                () -> RequestScheduler.withPriority(Priority.INTERACTIVE, RequestScheduler::currentPriority));
+        assertEquals(Priority.INTERACTIVE, inner);
+        assertEquals(Priority.NORMAL, RequestScheduler.currentPriority());
+    }
+
+    /**
+     * Send a request of the given class on another thread, which is over as soon as it is sent
+     */
+    private static void send(final RequestScheduler scheduler, final Priority priority, final List<Priority> sent,
+            final CountDownLatch done) {
+        Thread thread = new Thread(() -> {
+            try {
+                scheduler.acquire(priority);
+                sent.add(priority);
+                scheduler.release(priority);
+                done.countDown();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void awaitQueued(RequestScheduler scheduler, Priority priority, int depth) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.getQueueDepth(priority) < depth && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(depth, scheduler.getQueueDepth(priority));
+    }
+}
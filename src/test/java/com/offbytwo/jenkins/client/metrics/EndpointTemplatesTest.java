@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class EndpointTemplatesTest {
+
+    @Test
+    public void shouldReplaceNamesAndNumbers() {
+        assertEquals("/job/{name}/{number}/api/json", EndpointTemplates.of("/job/trunk/12/api/json"));
+        assertEquals("/job/{name}/job/{name}/api/json", EndpointTemplates.of("/job/folder/job/trunk/api/json"));
+        assertEquals("/view/{name}/config.xml", EndpointTemplates.of("/view/All/config.xml"));
+        assertEquals("/queue/item/{id}/api/json", EndpointTemplates.of("/queue/item/42/api/json"));
+    }
+
+    @Test
+    public void shouldNotTakeNamesForKeywords() {
+        assertEquals("/job/{name}/{number}/", EndpointTemplates.of("/job/job/12/"));
+        assertEquals("/job/{name}/{number}/api/json", EndpointTemplates.of("/job/item/12/api/json"));
+        assertEquals("/view/{name}/job/{name}/api/json", EndpointTemplates.of("/view/view/job/job/api/json"));
+    }
+
+    @Test
+    public void shouldKeepPermalinksAndTrailingSlash() {
+        assertEquals("/job/{name}/lastBuild/", EndpointTemplates.of("/job/trunk/lastBuild/"));
+        assertEquals("/", EndpointTemplates.of("/"));
+        assertEquals("/api/json", EndpointTemplates.of("/api/json"));
+    }
+
+    @Test
+    public void shouldCollapseArtifactPaths() {
+        assertEquals("/job/{name}/{number}/artifact/{path}",
+                EndpointTemplates.of("/job/trunk/3/artifact/target/lib/client.jar"));
+    }
+}
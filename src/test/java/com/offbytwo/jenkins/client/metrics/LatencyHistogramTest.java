@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.client.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram histogram = new LatencyHistogram(3600000000L);
+
+    @Test
+    public void shouldBeExactForSmallValues() {
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(50, histogram.getValueAtPercentile(50));
+        assertEquals(99, histogram.getValueAtPercentile(99));
+        assertEquals(100, histogram.getValueAtPercentile(100));
+        assertEquals(100, histogram.getCount());
+        assertEquals(50.5, histogram.getMean(), 0.001);
+    }
+
+    @Test
+    public void shouldReportPercentilesWithinPrecision() {
+        for (int i = 1; i <= 100000; i++) {
+            histogram.record(i * 10L);
+        }
+        assertWithin(500000, histogram.getValueAtPercentile(50));
+        assertWithin(990000, histogram.getValueAtPercentile(99));
+        assertWithin(999000, histogram.getValueAtPercentile(99.9));
+        assertEquals(1000000, histogram.getMax());
+    }
+
+    @Test
+    public void shouldClampToHighestTrackableValue() {
+        LatencyHistogram small = new LatencyHistogram(1000);
+        small.record(5000);
+        assertEquals(1000, small.getMax());
+        assertEquals(1000, small.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void shouldReset() {
+        histogram.record(42);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual + " is not close to " + expected, Math.abs(actual - expected) <= expected / 64);
+    }
+}
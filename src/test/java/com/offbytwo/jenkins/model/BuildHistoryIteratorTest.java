@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.model;
+
+import com.offbytwo.jenkins.client.JenkinsHttpClient;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class BuildHistoryIteratorTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final FakeClient client = new FakeClient(25);
+
+    @Test
+    public void shouldIterateOverAllPages() throws Exception {
+        List<Integer> numbers = new ArrayList<Integer>();
+        for (Build build : new Iterable<Build>() {
+            @Override
+            public Iterator<Build> iterator() {
+                return new BuildHistoryIterator(client, "http://localhost/job/trunk/", 10, null);
+            }
+        }) {
+            numbers.add(build.getNumber());
+            assertSame(client, build.getClient());
+        }
+
+        assertEquals(25, numbers.size());
+        assertEquals(Integer.valueOf(25), numbers.get(0));
+        assertEquals(Integer.valueOf(1), numbers.get(24));
+        assertEquals(3, client.requests);
+    }
+
+    @Test
+    public void shouldOnlyFetchWhatIsConsumed() throws Exception {
+        Iterator<Build> builds = new BuildHistoryIterator(client, "http://localhost/job/trunk/", 10, null);
+        for (int i = 0; i < 5; i++) {
+            builds.next();
+        }
+        assertEquals(1, client.requests);
+    }
+
+    @Test
+    public void shouldReadAheadOnePage() throws Exception {
+        Iterator<Build> builds = new BuildHistoryIterator(client, "http://localhost/job/trunk/", 10, DIRECT);
+        builds.next();
+        assertEquals(2, client.requests);
+    }
+
+    @Test
+    public void shouldStopOnEmptyHistory() throws Exception {
+        FakeClient empty = new FakeClient(0);
+        assertFalse(new BuildHistoryIterator(empty, "http://localhost/job/trunk/", 10, DIRECT).hasNext());
+        assertEquals(1, empty.requests);
+    }
+
+    private static class FakeClient extends JenkinsHttpClient {
+        private static final Pattern RANGE = Pattern.compile("\\{(\\d+),(\\d+)\\}");
+        private final int lastBuild;
+        private int requests;
+
+        FakeClient(int lastBuild) {
+            super(URI.create("http://localhost/"));
+            this.lastBuild = lastBuild;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends BaseModel> T get(String path, Class<T> cls) throws IOException {
+            requests++;
+            Matcher range = RANGE.matcher(URLDecoder.decode(path, "UTF-8"));
+            range.find();
+            BuildHistoryPage page = new BuildHistoryPage();
+            int end = Math.min(Integer.parseInt(range.group(2)), lastBuild);
+            for (int i = Integer.parseInt(range.group(1)); i < end; i++) {
+                int number = lastBuild - i;
+                page.getAllBuilds().add(new Build(number, "http://localhost/job/trunk/" + number + "/"));
+            }
+            return (T) page;
+        }
+    }
+}
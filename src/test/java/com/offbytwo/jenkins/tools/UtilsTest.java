@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.offbytwo.jenkins.model.BuildWithDetails;
+import com.offbytwo.jenkins.model.JobWithDetails;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class UtilsTest {
+
+    @Test
+    public void shouldCacheReaderPerClass() throws Exception {
+        assertSame(Utils.getJsonReader(JobWithDetails.class), Utils.getJsonReader(JobWithDetails.class));
+        assertNotSame(Utils.getJsonReader(JobWithDetails.class), Utils.getJsonReader(BuildWithDetails.class));
+        assertSame(Utils.getXmlReader(JobWithDetails.class), Utils.getXmlReader(JobWithDetails.class));
+
+        JobWithDetails job = Utils.getJsonReader(JobWithDetails.class)
+                .readValue("{\"name\":\"trunk\",\"unknown\":1}");
+        assertEquals("trunk", job.getName());
+    }
+
+    @Test
+    public void shouldKeepReflectionUnlessAfterburnerIsAskedFor() {
+        assertFalse(Utils.registerAfterburner(new ObjectMapper(), null));
+        assertFalse(Utils.registerAfterburner(new ObjectMapper(), "false"));
+        // on the test classpath, but not asked for
+        assertFalse(Utils.isAfterburnerEnabled());
+    }
+
+    @Test
+    public void shouldRegisterAfterburnerWhenAskedForAndAvailable() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+
+        assertEquals(isAfterburnerAvailable(), Utils.registerAfterburner(mapper, "true"));
+
+        BuildWithDetails build = mapper.readValue("{\"number\":3,\"building\":true}", BuildWithDetails.class);
+        assertEquals(3, build.getNumber());
+    }
+
+    private static boolean isAfterburnerAvailable() {
+        try {
+            Class.forName("com.fasterxml.jackson.module.afterburner.AfterburnerModule");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,707 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.stub;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A fake Jenkins running in-process, serving synthetic jobs, builds, logs and artifacts at the scale given by
+ * {@link StubJenkinsSettings}, with injectable latency and errors. Meant for load and latency testing of the client
+ * without a real server or network.
+ *
+ * Supported endpoints (all {@code api/json} suffixes are optional, as for Jenkins):
+ * <ul>
+ * <li>{@code /api/json}, {@code /view/{name}/api/json} and {@code /view/{name}/config.xml}</li>
+ * <li>{@code /crumbIssuer/api/json}</li>
+ * <li>{@code /computer/api/json} and {@code /computer/{name}/api/json}</li>
+ * <li>{@code /job/{name}/api/json}, honouring {@code tree=allBuilds[...]{m,n}} ranges</li>
+ * <li>{@code /job/{name}/config.xml} (GET and POST), {@code /createItem?name=}, {@code /job/{name}/doDelete}</li>
+ * <li>{@code /job/{name}/build} and {@code /job/{name}/buildWithParameters}, {@code /queue/api/json} and
+ * {@code /queue/item/{id}/api/json}</li>
+ * <li>{@code /job/{name}/{number}/api/json}</li>
+ * <li>{@code /job/{name}/{number}/logText/progressiveText?start=}</li>
+ * <li>{@code /job/{name}/{number}/artifact/{path}}, with {@code Range} support</li>
+ * </ul>
+ */
+public class StubJenkins {
+    public static final String CRUMB_FIELD = "Jenkins-Crumb";
+    public static final String CRUMB = "stub-crumb";
+
+    private static final String JOB_CONFIG = "<?xml version='1.0' encoding='UTF-8'?>\n<project>\n"
+            + "  <description>stub job</description>\n  <keepDependencies>false</keepDependencies>\n"
+            + "  <properties/>\n  <scm class=\"hudson.scm.NullSCM\"/>\n  <canRoam>true</canRoam>\n"
+            + "  <disabled>false</disabled>\n  <triggers/>\n  <builders/>\n  <publishers/>\n"
+            + "  <buildWrappers/>\n</project>";
+    private static final Pattern BUILD_RANGE = Pattern.compile("allBuilds\\[[^\\]]*\\]\\{(\\d*),(\\d*)\\}");
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+    private static final int PATTERN_SIZE = 8192;
+
+    private final StubJenkinsSettings settings;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final ConcurrentSkipListMap<String, String> jobs = new ConcurrentSkipListMap<String, String>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong queueItems = new AtomicLong();
+    private final ConcurrentHashMap<Long, String> queuedJobs = new ConcurrentHashMap<Long, String>();
+    private final byte[] logPattern;
+    private final byte[] pattern;
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private String base;
+
+    public StubJenkins(StubJenkinsSettings settings) {
+        this.settings = settings;
+        for (int i = 0; i < settings.getJobs(); i++) {
+            jobs.put("job-" + i, JOB_CONFIG);
+        }
+        this.logPattern = logPattern();
+        this.pattern = new byte[PATTERN_SIZE];
+        for (int i = 0; i < PATTERN_SIZE; i++) {
+            pattern[i] = (byte) (i * 31 + 7);
+        }
+    }
+
+    /**
+     * Start serving on an ephemeral port of the loopback interface
+     *
+     * @return the address of the server, ex. http://localhost:53124/
+     * @throws IOException
+     */
+    public URI start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        executor = Executors.newFixedThreadPool(settings.getThreads());
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    serve(exchange);
+                } catch (RuntimeException e) {
+                    respond(exchange, 500, "text/plain", e.toString().getBytes(StandardCharsets.UTF_8));
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+        base = "http://localhost:" + server.getAddress().getPort() + "/";
+        return getUri();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public URI getUri() {
+        return URI.create(base);
+    }
+
+    /**
+     * @return number of requests served so far
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * @return the config.xml of a job, null if there is no such job
+     */
+    public String getJobConfig(String name) {
+        return jobs.get(name);
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        byte[] body = readBody(exchange);
+        injectLatency();
+        if (settings.getErrorRate() > 0 && ThreadLocalRandom.current().nextDouble() < settings.getErrorRate()) {
+            respond(exchange, 500, "text/plain", "injected error".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        String path = exchange.getRequestURI().getRawPath();
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        boolean post = "POST".equals(exchange.getRequestMethod());
+        if (post && settings.isUseCrumbs() && !CRUMB.equals(exchange.getRequestHeaders().getFirst(CRUMB_FIELD))) {
+            respond(exchange, 403, "text/plain", "No valid crumb was included in the request".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        List<String> segments = new ArrayList<String>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(decode(segment));
+            }
+        }
+        int size = segments.size();
+        if (size >= 2 && segments.get(size - 2).equals("api") && segments.get(size - 1).equals("json")) {
+            segments = segments.subList(0, size - 2);
+            size -= 2;
+        }
+
+        if (size == 0) {
+            respondJson(exchange, mainView());
+        } else if (size == 1 && segments.get(0).equals("crumbIssuer")) {
+            if (settings.isUseCrumbs()) {
+                respondJson(exchange, crumb());
+            } else {
+                notFound(exchange);
+            }
+        } else if (size == 1 && segments.get(0).equals("createItem") && post) {
+            String name = query.get("name");
+            if (name == null || jobs.putIfAbsent(name, new String(body, StandardCharsets.UTF_8)) != null) {
+                respond(exchange, 400, "text/plain", new byte[0]);
+            } else {
+                respond(exchange, 200, "text/plain", new byte[0]);
+            }
+        } else if (size == 1 && segments.get(0).equals("queue")) {
+            respondJson(exchange, "{\"items\":[]}".getBytes(StandardCharsets.UTF_8));
+        } else if (size == 3 && segments.get(0).equals("queue") && segments.get(1).equals("item")
+                && isBuildNumber(segments.get(2)) && queuedJobs.containsKey(Long.parseLong(segments.get(2)))) {
+            respondJson(exchange, queueItem(Long.parseLong(segments.get(2))));
+        } else if (segments.get(0).equals("computer")) {
+            serveComputer(exchange, segments);
+        } else if (segments.get(0).equals("view") && size >= 2) {
+            if (size == 3 && segments.get(2).equals("config.xml")) {
+                respond(exchange, 200, "application/xml", listViewConfig(segments.get(1)));
+            } else {
+                respondJson(exchange, view(segments.get(1)));
+            }
+        } else if (segments.get(0).equals("job") && size >= 2 && jobs.containsKey(segments.get(1))) {
+            serveJob(exchange, segments, query, post, body);
+        } else {
+            notFound(exchange);
+        }
+    }
+
+    private void serveJob(HttpExchange exchange, List<String> segments, Map<String, String> query, boolean post,
+                          byte[] body) throws IOException {
+        String name = segments.get(1);
+        int size = segments.size();
+        if (size == 2) {
+            respondJson(exchange, job(name, query.get("tree")));
+            return;
+        }
+        String action = segments.get(2);
+        if (size == 3 && action.equals("config.xml")) {
+            if (post) {
+                jobs.replace(name, new String(body, StandardCharsets.UTF_8));
+                respond(exchange, 200, "text/plain", new byte[0]);
+            } else {
+                respond(exchange, 200, "application/xml", jobs.get(name).getBytes(StandardCharsets.UTF_8));
+            }
+        } else if (size == 3 && action.equals("doDelete") && post) {
+            jobs.remove(name);
+            respond(exchange, 200, "text/plain", new byte[0]);
+        } else if (size == 3 && (action.equals("build") || action.equals("buildWithParameters")) && post) {
+            long item = queueItems.incrementAndGet();
+            queuedJobs.put(item, name);
+            exchange.getResponseHeaders().add("Location", base + "queue/item/" + item + "/");
+            respond(exchange, 201, "text/plain", new byte[0]);
+        } else if (isBuildNumber(action)) {
+            serveBuild(exchange, name, Integer.parseInt(action), segments.subList(3, size), query);
+        } else {
+            notFound(exchange);
+        }
+    }
+
+    private void serveBuild(HttpExchange exchange, String job, int number, List<String> rest,
+                            Map<String, String> query) throws IOException {
+        if (number < 1 || number > settings.getBuildsPerJob()) {
+            notFound(exchange);
+        } else if (rest.isEmpty()) {
+            respondJson(exchange, build(job, number));
+        } else if (rest.size() == 2 && rest.get(0).equals("logText") && rest.get(1).equals("progressiveText")) {
+            serveLog(exchange, query);
+        } else if (rest.size() >= 2 && rest.get(0).equals("artifact")) {
+            serveArtifact(exchange);
+        } else {
+            notFound(exchange);
+        }
+    }
+
+    private void serveArtifact(HttpExchange exchange) throws IOException {
+        long length = settings.getArtifactSize();
+        long from = 0;
+        long to = length - 1;
+        int status = 200;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        Matcher matcher = range == null ? null : RANGE.matcher(range);
+        if (matcher != null && matcher.matches()) {
+            if (matcher.group(1).isEmpty()) {
+                from = Math.max(0, length - Long.parseLong(matcher.group(2)));
+            } else {
+                from = Long.parseLong(matcher.group(1));
+                if (!matcher.group(2).isEmpty()) {
+                    to = Math.min(to, Long.parseLong(matcher.group(2)));
+                }
+            }
+            if (from > to) {
+                exchange.getResponseHeaders().add("Content-Range", "bytes */" + length);
+                respond(exchange, 416, "text/plain", new byte[0]);
+                return;
+            }
+            status = 206;
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + from + "-" + to + "/" + length);
+        }
+        exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+        exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+        long count = to - from + 1;
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().add("Content-Length", String.valueOf(count));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, count == 0 ? -1 : count);
+        OutputStream out = exchange.getResponseBody();
+        writeRange(out, pattern, from, to);
+        out.close();
+    }
+
+    private void serveLog(HttpExchange exchange, Map<String, String> query) throws IOException {
+        long size = settings.getLogSize();
+        long start = query.containsKey("start") ? Math.max(0, Math.min(Long.parseLong(query.get("start")), size)) : 0;
+        exchange.getResponseHeaders().add("X-Text-Size", String.valueOf(size));
+        exchange.getResponseHeaders().add("X-More-Data", "false");
+        exchange.getResponseHeaders().add("Content-Type", "text/plain;charset=UTF-8");
+        long count = size - start;
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(200, count == 0 ? -1 : count);
+        OutputStream out = exchange.getResponseBody();
+        // generated on the fly, logs can be larger than the memory of the stub
+        writeRange(out, logPattern, start, size - 1);
+        out.close();
+    }
+
+    private void serveComputer(HttpExchange exchange, List<String> segments) throws IOException {
+        if (segments.size() == 1) {
+            respondJson(exchange, computers());
+        } else if (segments.size() == 2 && computerIndex(segments.get(1)) >= 0) {
+            respondJson(exchange, computer(computerIndex(segments.get(1))));
+        } else {
+            notFound(exchange);
+        }
+    }
+
+    private byte[] mainView() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator json = jsonFactory.createGenerator(out);
+        json.writeStartObject();
+        json.writeStringField("mode", "NORMAL");
+        json.writeStringField("nodeDescription", "the master Jenkins node");
+        json.writeStringField("nodeName", "");
+        json.writeNumberField("numExecutors", 2);
+        json.writeNullField("description");
+        json.writeArrayFieldStart("jobs");
+        for (String name : jobs.keySet()) {
+            writeJobReference(json, name);
+        }
+        json.writeEndArray();
+        json.writeObjectFieldStart("primaryView");
+        json.writeStringField("name", "All");
+        json.writeStringField("url", base);
+        json.writeEndObject();
+        json.writeBooleanField("quietingDown", false);
+        json.writeNumberField("slaveAgentPort", 0);
+        json.writeBooleanField("useCrumbs", settings.isUseCrumbs());
+        json.writeBooleanField("useSecurity", true);
+        json.writeArrayFieldStart("views");
+        json.writeStartObject();
+        json.writeStringField("name", "All");
+        json.writeStringField("url", base);
+        json.writeEndObject();
+        json.writeEndArray();
+        json.writeEndObject();
+        json.close();
+        return out.toByteArray();
+    }
+
+    private byte[] view(String name) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator json = jsonFactory.createGenerator(out);
+        json.writeStartObject();
+        json.writeStringField("name", name);
+        json.writeStringField("url", base + "view/" + name + "/");
+        json.writeNullField("description");
+        json.writeArrayFieldStart("jobs");
+        for (String job : jobs.keySet()) {
+            writeJobReference(json, job);
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+        json.close();
+        return out.toByteArray();
+    }
+
+    private byte[] listViewConfig(String name) {
+        StringBuilder xml = new StringBuilder("<?xml version='1.0' encoding='UTF-8'?>\n<hudson.model.ListView>\n")
+                .append("  <name>").append(name).append("</name>\n  <jobNames>\n")
+                .append("    <comparator class=\"hudson.util.CaseInsensitiveComparator\"/>\n");
+        for (String job : jobs.keySet()) {
+            xml.append("    <string>").append(job).append("</string>\n");
+        }
+        xml.append("  </jobNames>\n  <jobFilters/>\n  <columns/>\n</hudson.model.ListView>");
+        return xml.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] crumb() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator json = jsonFactory.createGenerator(out);
+        json.writeStartObject();
+        json.writeStringField("crumb", CRUMB);
+        json.writeStringField("crumbRequestField", CRUMB_FIELD);
+        json.writeEndObject();
+        json.close();
+        return out.toByteArray();
+    }
+
+    private byte[] job(String name, String tree) throws IOException {
+        String url = base + "job/" + name + "/";
+        int last = settings.getBuildsPerJob();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator json = jsonFactory.createGenerator(out);
+        json.writeStartObject();
+        Matcher range = tree == null ? null : BUILD_RANGE.matcher(tree);
+        if (range != null && range.find()) {
+            int from = range.group(1).isEmpty() ? 0 : Integer.parseInt(range.group(1));
+            int to = range.group(2).isEmpty() ? last : Integer.parseInt(range.group(2));
+            json.writeArrayFieldStart("allBuilds");
+            for (int i = from; i < Math.min(to, last); i++) {
+                writeBuildReference(json, url, last - i);
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+            json.close();
+            return out.toByteArray();
+        }
+        json.writeStringField("name", name);
+        json.writeStringField("url", url);
+        json.writeStringField("displayName", name);
+        json.writeStringField("description", "");
+        json.writeBooleanField("buildable", true);
+        json.writeArrayFieldStart("builds");
+        for (int number = last; number > 0 && number > last - 100; number--) {
+            writeBuildReference(json, url, number);
+        }
+        json.writeEndArray();
+        json.writeStringField("color", "blue");
+        String[] latest = {"lastBuild", "lastCompletedBuild", "lastStableBuild", "lastSuccessfulBuild"};
+        for (String field : latest) {
+            json.writeFieldName(field);
+            if (last > 0) {
+                writeBuildReference(json, url, last);
+            } else {
+                json.writeNull();
+            }
+        }
+        json.writeNullField("lastFailedBuild");
+        json.writeNullField("lastUnstableBuild");
+        json.writeNullField("lastUnsuccessfulBuild");
+        json.writeNumberField("nextBuildNumber", last + 1);
+        json.writeBooleanField("inQueue", false);
+        json.writeArrayFieldStart("downstreamProjects");
+        json.writeEndArray();
+        json.writeArrayFieldStart("upstreamProjects");
+        json.writeEndArray();
+        json.writeEndObject();
+        json.close();
+        return out.toByteArray();
+    }
+
+    private byte[] build(String job, int number) throws IOException {
+        String url = base + "job/" + job + "/" + number + "/";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator json = jsonFactory.createGenerator(out);
+        json.writeStartObject();
+        json.writeArrayFieldStart("actions");
+        json.writeStartObject();
+        json.writeArrayFieldStart("parameters");
+        json.writeStartObject();
+        json.writeStringField("name", "BUILD_NUMBER");
+        json.writeStringField("value", String.valueOf(number));
+        json.writeEndObject();
+        json.writeEndArray();
+        json.writeEndObject();
+        json.writeEndArray();
+        json.writeArrayFieldStart("artifacts");
+        for (int i = 0; i < settings.getArtifactsPerBuild(); i++) {
+            json.writeStartObject();
+            json.writeStringField("displayPath", "artifact-" + i + ".bin");
+            json.writeStringField("fileName", "artifact-" + i + ".bin");
+            json.writeStringField("relativePath", "target/artifact-" + i + ".bin");
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+        json.writeBooleanField("building", false);
+        json.writeNullField("description");
+        json.writeNumberField("duration", 60000);
+        json.writeNumberField("estimatedDuration", 60000);
+        json.writeStringField("fullDisplayName", job + " #" + number);
+        json.writeStringField("id", String.valueOf(number));
+        json.writeNumberField("number", number);
+        json.writeStringField("result", "SUCCESS");
+        json.writeNumberField("timestamp", 1410193080000L + number * 3600000L);
+        json.writeStringField("url", url);
+        json.writeEndObject();
+        json.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Triggered builds leave the queue at once, as the last build of their job
+     */
+    private byte[] queueItem(long id) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator json = jsonFactory.createGenerator(out);
+        json.writeStartObject();
+        json.writeNumberField("id", id);
+        json.writeBooleanField("cancelled", false);
+        json.writeFieldName("executable");
+        writeBuildReference(json, base + "job/" + queuedJobs.get(id) + "/", settings.getBuildsPerJob());
+        json.writeEndObject();
+        json.close();
+        return out.toByteArray();
+    }
+
+    private byte[] computers() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator json = jsonFactory.createGenerator(out);
+        json.writeStartObject();
+        json.writeNumberField("busyExecutors", 0);
+        json.writeArrayFieldStart("computer");
+        for (int i = 0; i < settings.getComputers(); i++) {
+            writeComputer(json, i);
+        }
+        json.writeEndArray();
+        json.writeStringField("displayName", "nodes");
+        json.writeNumberField("totalExecutors", settings.getComputers() * 2);
+        json.writeEndObject();
+        json.close();
+        return out.toByteArray();
+    }
+
+    private byte[] computer(int index) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator json = jsonFactory.createGenerator(out);
+        writeComputer(json, index);
+        json.close();
+        return out.toByteArray();
+    }
+
+    private void writeComputer(JsonGenerator json, int index) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("displayName", computerName(index));
+        json.writeArrayFieldStart("executors");
+        json.writeEndArray();
+        json.writeBooleanField("idle", true);
+        json.writeBooleanField("jnlp", index > 0);
+        json.writeNumberField("numExecutors", 2);
+        json.writeBooleanField("offline", false);
+        json.writeBooleanField("temporarilyOffline", false);
+        json.writeEndObject();
+    }
+
+    private void writeJobReference(JsonGenerator json, String name) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("name", name);
+        json.writeStringField("url", base + "job/" + name + "/");
+        json.writeStringField("color", "blue");
+        json.writeEndObject();
+    }
+
+    private static void writeBuildReference(JsonGenerator json, String jobUrl, int number) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("number", number);
+        json.writeStringField("url", jobUrl + number + "/");
+        json.writeEndObject();
+    }
+
+    private static String computerName(int index) {
+        return index == 0 ? "master" : "slave-" + index;
+    }
+
+    private int computerIndex(String name) {
+        if (name.equals("master") || name.equals("(master)")) {
+            return 0;
+        }
+        if (name.startsWith("slave-") && isBuildNumber(name.substring(6))) {
+            int index = Integer.parseInt(name.substring(6));
+            return index < settings.getComputers() ? index : -1;
+        }
+        return -1;
+    }
+
+    private void injectLatency() {
+        long delay = settings.getLatencyMillis();
+        if (settings.getLatencyJitterMillis() > 0) {
+            delay += ThreadLocalRandom.current().nextLong(settings.getLatencyJitterMillis() + 1);
+        }
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void respondJson(HttpExchange exchange, byte[] body) throws IOException {
+        respond(exchange, 200, "application/json;charset=UTF-8", body);
+    }
+
+    private void notFound(HttpExchange exchange) throws IOException {
+        respond(exchange, 404, "text/plain", "Not Found".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, byte[] body)
+            throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        InputStream in = exchange.getRequestBody();
+        byte[] buffer = new byte[8192];
+        for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+            body.write(buffer, 0, read);
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * @return the same log line repeated over about {@link #PATTERN_SIZE} bytes
+     */
+    private static byte[] logPattern() {
+        byte[] line = "[stub] Building in workspace, all tests passed so far\n".getBytes(StandardCharsets.UTF_8);
+        byte[] log = new byte[line.length * (PATTERN_SIZE / line.length)];
+        for (int i = 0; i < log.length; i++) {
+            log[i] = line[i % line.length];
+        }
+        return log;
+    }
+
+    /**
+     * Write bytes {@code from} to {@code to} included of a content repeating the given pattern
+     */
+    private static void writeRange(OutputStream out, byte[] pattern, long from, long to) throws IOException {
+        long position = from;
+        while (position <= to) {
+            int offset = (int) (position % pattern.length);
+            int chunk = (int) Math.min(pattern.length - offset, to - position + 1);
+            out.write(pattern, offset, chunk);
+            position += chunk;
+        }
+    }
+
+    private static boolean isBuildNumber(String segment) {
+        if (segment.isEmpty() || segment.length() > 9) {
+            return false;
+        }
+        for (int i = 0; i < segment.length(); i++) {
+            if (!Character.isDigit(segment.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<String, String>();
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                int separator = pair.indexOf('=');
+                if (separator > 0) {
+                    query.put(decode(pair.substring(0, separator)), decode(pair.substring(separator + 1)));
+                }
+            }
+        }
+        return query;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Run a stub from the command line, ex. {@code jobs=1000 buildsPerJob=50 latencyMillis=5}
+     */
+    public static void main(String[] args) throws Exception {
+        StubJenkinsSettings settings = new StubJenkinsSettings();
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            String value = pair.length > 1 ? pair[1] : "";
+            if (pair[0].equals("jobs")) {
+                settings.setJobs(Integer.parseInt(value));
+            } else if (pair[0].equals("buildsPerJob")) {
+                settings.setBuildsPerJob(Integer.parseInt(value));
+            } else if (pair[0].equals("artifactsPerBuild")) {
+                settings.setArtifactsPerBuild(Integer.parseInt(value));
+            } else if (pair[0].equals("artifactSize")) {
+                settings.setArtifactSize(Long.parseLong(value));
+            } else if (pair[0].equals("logSize")) {
+                settings.setLogSize(Long.parseLong(value));
+            } else if (pair[0].equals("computers")) {
+                settings.setComputers(Integer.parseInt(value));
+            } else if (pair[0].equals("latencyMillis")) {
+                settings.setLatencyMillis(Long.parseLong(value));
+            } else if (pair[0].equals("latencyJitterMillis")) {
+                settings.setLatencyJitterMillis(Long.parseLong(value));
+            } else if (pair[0].equals("errorRate")) {
+                settings.setErrorRate(Double.parseDouble(value));
+            } else if (pair[0].equals("useCrumbs")) {
+                settings.setUseCrumbs(Boolean.parseBoolean(value));
+            } else if (pair[0].equals("threads")) {
+                settings.setThreads(Integer.parseInt(value));
+            } else {
+                throw new IllegalArgumentException("Unknown setting " + pair[0]);
+            }
+        }
+        System.out.println("Stub Jenkins listening on " + new StubJenkins(settings).start());
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.stub;
+
+/**
+ * Scale and behaviour of a {@link StubJenkins}.
+ */
+public class StubJenkinsSettings {
+    private int jobs = 100;
+    private int buildsPerJob = 20;
+    private int artifactsPerBuild = 2;
+    private long artifactSize = 64 * 1024;
+    private long logSize = 16 * 1024;
+    private int computers = 4;
+    private long latencyMillis = 0;
+    private long latencyJitterMillis = 0;
+    private double errorRate = 0;
+    private boolean useCrumbs = true;
+    private int threads = 32;
+
+    /**
+     * @return number of jobs, named {@code job-0} to {@code job-(n-1)}
+     */
+    public int getJobs() {
+        return jobs;
+    }
+
+    public void setJobs(int jobs) {
+        this.jobs = jobs;
+    }
+
+    /**
+     * @return number of completed builds of each job, numbered from 1
+     */
+    public int getBuildsPerJob() {
+        return buildsPerJob;
+    }
+
+    public void setBuildsPerJob(int buildsPerJob) {
+        this.buildsPerJob = buildsPerJob;
+    }
+
+    public int getArtifactsPerBuild() {
+        return artifactsPerBuild;
+    }
+
+    public void setArtifactsPerBuild(int artifactsPerBuild) {
+        this.artifactsPerBuild = artifactsPerBuild;
+    }
+
+    /**
+     * @return size in bytes of every artifact
+     */
+    public long getArtifactSize() {
+        return artifactSize;
+    }
+
+    public void setArtifactSize(long artifactSize) {
+        this.artifactSize = artifactSize;
+    }
+
+    /**
+     * @return size in bytes of every console log
+     */
+    public long getLogSize() {
+        return logSize;
+    }
+
+    public void setLogSize(long logSize) {
+        this.logSize = logSize;
+    }
+
+    /**
+     * @return number of computers, the master included
+     */
+    public int getComputers() {
+        return computers;
+    }
+
+    public void setComputers(int computers) {
+        this.computers = computers;
+    }
+
+    /**
+     * @return delay added before answering any request
+     */
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * @return upper bound of a random delay added on top of {@link #getLatencyMillis()}
+     */
+    public long getLatencyJitterMillis() {
+        return latencyJitterMillis;
+    }
+
+    public void setLatencyJitterMillis(long latencyJitterMillis) {
+        this.latencyJitterMillis = latencyJitterMillis;
+    }
+
+    /**
+     * @return fraction (0 to 1) of the requests answered with a 500
+     */
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * @return whether POST requests must carry the crumb served by {@code /crumbIssuer}
+     */
+    public boolean isUseCrumbs() {
+        return useCrumbs;
+    }
+
+    public void setUseCrumbs(boolean useCrumbs) {
+        this.useCrumbs = useCrumbs;
+    }
+
+    /**
+     * @return number of threads serving requests
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+}
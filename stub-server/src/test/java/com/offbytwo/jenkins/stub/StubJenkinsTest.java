@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2013 Rising Oak LLC.
+ *
+ * Distributed under the MIT license: http://opensource.org/licenses/MIT
+ */
+
+package com.offbytwo.jenkins.stub;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StubJenkinsTest {
+    private final StubJenkinsSettings settings = new StubJenkinsSettings();
+    private StubJenkins stub;
+    private URI uri;
+
+    @After
+    public void tearDown() {
+        if (stub != null) {
+            stub.stop();
+        }
+    }
+
+    @Test
+    public void shouldListJobsAndViews() throws Exception {
+        settings.setJobs(3);
+        start();
+
+        String main = get("api/json").body;
+        assertTrue(main.contains("\"name\":\"job-0\""));
+        assertTrue(main.contains("\"name\":\"job-2\""));
+        assertFalse(main.contains("\"name\":\"job-3\""));
+        assertTrue(get("view/All/api/json").body.contains("\"name\":\"job-1\""));
+        assertTrue(get("view/All/config.xml").body.contains("<string>job-1</string>"));
+        assertEquals(404, get("job/job-3/api/json").status);
+    }
+
+    @Test
+    public void shouldServeJobsAndBuilds() throws Exception {
+        settings.setJobs(2);
+        settings.setBuildsPerJob(5);
+        settings.setArtifactsPerBuild(2);
+        start();
+
+        String job = get("job/job-1/api/json").body;
+        assertTrue(job.contains("\"name\":\"job-1\""));
+        assertTrue(job.contains("\"nextBuildNumber\":6"));
+        assertTrue(job.contains("\"lastBuild\":{\"number\":5"));
+
+        String builds = get("job/job-1/api/json?tree=allBuilds%5Bnumber,url%5D%7B1,3%7D").body;
+        assertTrue(builds.contains("\"number\":4"));
+        assertTrue(builds.contains("\"number\":3"));
+        assertFalse(builds.contains("\"number\":5"));
+        assertFalse(builds.contains("\"number\":2"));
+
+        String build = get("job/job-1/5/api/json").body;
+        assertTrue(build.contains("\"number\":5"));
+        assertTrue(build.contains("\"fileName\":\"artifact-1.bin\""));
+        assertEquals(404, get("job/job-1/6/api/json").status);
+    }
+
+    @Test
+    public void shouldServeLogsAndArtifactRanges() throws Exception {
+        settings.setLogSize(100);
+        settings.setArtifactSize(10000);
+        start();
+
+        Response log = get("job/job-0/1/logText/progressiveText?start=40");
+        assertEquals(60, log.bytes.length);
+        assertTrue(get("job/job-0/1/logText/progressiveText").body.startsWith("[stub] Building"));
+        assertEquals("100", log.headers.getHeaderField("X-Text-Size"));
+
+        Response whole = get("job/job-0/1/artifact/target/artifact-0.bin");
+        assertEquals(200, whole.status);
+        assertEquals(10000, whole.bytes.length);
+
+        HttpURLConnection connection = open("job/job-0/1/artifact/target/artifact-0.bin");
+        connection.setRequestProperty("Range", "bytes=9000-");
+        Response tail = read(connection);
+        assertEquals(206, tail.status);
+        assertEquals("bytes 9000-9999/10000", tail.headers.getHeaderField("Content-Range"));
+        assertEquals(1000, tail.bytes.length);
+        for (int i = 0; i < tail.bytes.length; i++) {
+            assertEquals(whole.bytes[9000 + i], tail.bytes[i]);
+        }
+    }
+
+    @Test
+    public void shouldGenerateLogsLargerThanAnArray() throws Exception {
+        settings.setLogSize(3L * Integer.MAX_VALUE);
+        start();
+
+        long start = 3L * Integer.MAX_VALUE - 100;
+        Response tail = get("job/job-0/1/logText/progressiveText?start=" + start);
+        assertEquals(100, tail.bytes.length);
+        assertEquals(String.valueOf(3L * Integer.MAX_VALUE), tail.headers.getHeaderField("X-Text-Size"));
+    }
+
+    @Test
+    public void shouldRequireCrumbForPosts() throws Exception {
+        start();
+
+        assertTrue(get("crumbIssuer/api/json").body.contains(StubJenkins.CRUMB));
+        assertEquals(403, post("job/job-0/config.xml", "<project/>", false).status);
+        assertEquals(200, post("job/job-0/config.xml", "<project/>", true).status);
+        assertEquals("<project/>", stub.getJobConfig("job-0"));
+
+        assertEquals(200, post("createItem?name=created", "<project/>", true).status);
+        assertEquals(200, get("job/created/api/json").status);
+        assertEquals(200, post("job/created/doDelete", "", true).status);
+        assertEquals(404, get("job/created/api/json").status);
+    }
+
+    @Test
+    public void shouldAcceptPostsWithoutCrumbsWhenDisabled() throws Exception {
+        settings.setUseCrumbs(false);
+        start();
+
+        assertEquals(404, get("crumbIssuer/api/json").status);
+        assertEquals(200, post("job/job-0/config.xml", "<project/>", false).status);
+    }
+
+    @Test
+    public void shouldQueueTriggeredBuilds() throws Exception {
+        settings.setBuildsPerJob(7);
+        start();
+
+        Response queued = post("job/job-0/build", "", true);
+        assertEquals(201, queued.status);
+        String location = queued.headers.getHeaderField("Location");
+        assertTrue(location.startsWith(uri + "queue/item/"));
+
+        String item = get(location.substring(uri.toString().length()) + "api/json").body;
+        assertTrue(item.contains("\"executable\":{\"number\":7"));
+    }
+
+    @Test
+    public void shouldInjectLatency() throws Exception {
+        settings.setLatencyMillis(100);
+        start();
+
+        long start = System.nanoTime();
+        assertEquals(200, get("api/json").status);
+        assertTrue((System.nanoTime() - start) / 1000000 >= 100);
+    }
+
+    @Test
+    public void shouldInjectErrors() throws Exception {
+        settings.setErrorRate(1);
+        start();
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(500, get("api/json").status);
+        }
+        assertEquals(5, stub.getRequestCount());
+    }
+
+    @Test
+    public void shouldServeComputersAndCountRequests() throws Exception {
+        settings.setComputers(3);
+        start();
+
+        assertTrue(get("computer/api/json").body.contains("\"displayName\":\"slave-2\""));
+        assertEquals(200, get("computer/master/api/json").status);
+        assertEquals(404, get("computer/slave-3/api/json").status);
+        assertEquals(3, stub.getRequestCount());
+    }
+
+    private void start() throws IOException {
+        stub = new StubJenkins(settings);
+        uri = stub.start();
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        return (HttpURLConnection) uri.resolve(path).toURL().openConnection();
+    }
+
+    private Response get(String path) throws IOException {
+        return read(open(path));
+    }
+
+    private Response post(String path, String body, boolean crumb) throws IOException {
+        HttpURLConnection connection = open(path);
+        connection.setRequestMethod("POST");
+        if (crumb) {
+            connection.setRequestProperty(StubJenkins.CRUMB_FIELD, StubJenkins.CRUMB);
+        }
+        connection.setDoOutput(true);
+        OutputStream out = connection.getOutputStream();
+        out.write(body.getBytes(StandardCharsets.UTF_8));
+        out.close();
+        return read(connection);
+    }
+
+    private static Response read(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (in != null) {
+            byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                bytes.write(buffer, 0, read);
+            }
+            in.close();
+        }
+        return new Response(status, bytes.toByteArray(), connection);
+    }
+
+    private static final class Response {
+        final int status;
+        final byte[] bytes;
+        final String body;
+        final HttpURLConnection headers;
+
+        Response(int status, byte[] bytes, HttpURLConnection headers) {
+            this.status = status;
+            this.bytes = bytes;
+            this.body = new String(bytes, StandardCharsets.UTF_8);
+            this.headers = headers;
+        }
+    }
+}